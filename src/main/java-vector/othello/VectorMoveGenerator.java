@@ -0,0 +1,80 @@
+package othello;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of #Bitboard.BatchMoveGenerator. Each lane holds one packed board, so
+ * a vector of the preferred species processes 4 (AVX2) or 8 (AVX-512) boards per instruction. <br/>
+ * Built by the 'vector' profile and loaded by #Bitboard.batch only when the jdk.incubator.vector module
+ * is available at run time.
+ */
+class VectorMoveGenerator implements Bitboard.BatchMoveGenerator {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    VectorMoveGenerator() {
+        // no point in vectorizing without at least two lanes
+        if (SPECIES.length() < 2) {
+            throw new UnsupportedOperationException("Vector species too narrow: " + SPECIES);
+        }
+    }
+
+    private static LongVector shift(LongVector v, int shift) {
+        return shift > 0 ? v.lanewise(VectorOperators.LSHL, shift) : v.lanewise(VectorOperators.LSHR, -shift);
+    }
+
+    @Override
+    public void moves(long[] own, long[] opp, long[] moves, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            LongVector o = LongVector.fromArray(SPECIES, own, i);
+            LongVector p = LongVector.fromArray(SPECIES, opp, i);
+            LongVector empty = o.or(p).not();
+            LongVector result = LongVector.zero(SPECIES);
+            for (int d = 0; d < Bitboard.SHIFTS.length; d++) {
+                int s = Bitboard.SHIFTS[d];
+                LongVector masked = p.and(Bitboard.MASKS[d]);
+                LongVector x = shift(o, s).and(masked);
+                for (int k = 0; k < 5; k++) {
+                    x = x.or(shift(x, s).and(masked));
+                }
+                result = result.or(shift(x, s).and(empty));
+            }
+            result.intoArray(moves, i);
+        }
+        // scalar tail
+        for (; i < n; i++) {
+            moves[i] = Bitboard.moves(own[i], opp[i]);
+        }
+    }
+
+    @Override
+    public void flips(long[] own, long[] opp, long[] move, long[] flips, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            LongVector o = LongVector.fromArray(SPECIES, own, i);
+            LongVector p = LongVector.fromArray(SPECIES, opp, i);
+            LongVector m = LongVector.fromArray(SPECIES, move, i);
+            LongVector result = LongVector.zero(SPECIES);
+            for (int d = 0; d < Bitboard.SHIFTS.length; d++) {
+                int s = Bitboard.SHIFTS[d];
+                LongVector masked = p.and(Bitboard.MASKS[d]);
+                LongVector f = shift(m, s).and(masked);
+                for (int k = 0; k < 5; k++) {
+                    f = f.or(shift(f, s).and(masked));
+                }
+                // keep the line only in the lanes where it is bracketed by an own piece
+                VectorMask<Long> open = shift(f, s).and(o).compare(VectorOperators.EQ, 0L);
+                result = result.or(f.blend(0L, open));
+            }
+            result.intoArray(flips, i);
+        }
+        // scalar tail
+        for (; i < n; i++) {
+            flips[i] = Bitboard.flips(own[i], opp[i], move[i]);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package othello;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent, size-bounded cache of per-position analysis: the valid moves, an evaluation and the best move. <br/>
+ * Positions seen again, e.g. after #Othello.undo or when many games of a front end such as #InputDriver reach
+ * the same opening, are answered without scanning the board again. The cache is split into segments, each with
+ * its own lock and an equal share of the byte budget, and evicts entries with either #Eviction.LRU or
+ * #Eviction.CLOCK once the estimated size of its entries exceeds the budget.
+ */
+class AnalysisCache {
+
+    enum Eviction {
+        /**
+         * Evict the least recently used entry.
+         */
+        LRU,
+        /**
+         * Second chance: the clock hand sweeps a circular buffer of the entries, clearing their flag, and evicts
+         * the first entry that was not used since the hand last passed it. The new entry takes the freed slot just
+         * behind the hand, so it is the last one the hand reaches. Cheaper than LRU on hits, which only set a flag
+         * and do not take the segment lock.
+         */
+        CLOCK
+    }
+
+    /**
+     * The analysis of a position for the player in turn. Shared by all the users of the cache, do not modify. <br/>
+     * Only the #moves are computed when the position is added to the cache, the #evaluation and the #bestMove
+     * are computed the first time they are asked for.
+     */
+    static class Analysis {
+        // the best move when there is none, null means not computed yet
+        private static final int[] NO_MOVE = new int[0];
+
+        final Othello.Moves moves;
+        // the packed position, shared with the key
+        private final byte[] board;
+        private volatile int[] bestMove;
+
+        Analysis(Othello.Moves moves, byte[] board) {
+            this.moves = moves;
+            this.board = board;
+        }
+
+        /**
+         * @return The disc difference from the point of view of the player.
+         */
+        int evaluation() {
+            int diff = 0;
+            for (byte square : board) {
+                if (square == moves.player) {
+                    diff++;
+                } else if (square != Othello.NONE) {
+                    diff--;
+                }
+            }
+            return diff;
+        }
+
+        /**
+         * @param rules The game whose rules play the moves.
+         * @return The move that leaves the largest disc difference, as {row, col}. null if there are no valid moves.
+         */
+        int[] bestMove(Othello rules) {
+            int[] best = bestMove;
+            if (best == null) {
+                // two threads may compute it once each, with the same result
+                best = NO_MOVE;
+                int bestScore = Integer.MIN_VALUE;
+                int size = moves.directions.length;
+                int[][] position = rules.unpackBoard(board, size);
+                for (int row = 0; row < size; row++) {
+                    for (int col = 0; col < size; col++) {
+                        if (moves.isValid(row, col)) {
+                            int[][] child = Othello.copyBoard(position);
+                            rules.makeMove(row, col, moves.player, child, moves.directions[row][col]);
+                            int score = Othello.discDifference(child, moves.player);
+                            if (score > bestScore) {
+                                bestScore = score;
+                                best = new int[]{row, col};
+                            }
+                        }
+                    }
+                }
+                bestMove = best;
+            }
+            return best == NO_MOVE ? null : best;
+        }
+    }
+
+    // a packed board and the player in turn
+    private static class Key {
+        final byte[] board;
+        final int player;
+        final int hash;
+
+        Key(byte[] board, int player) {
+            this.board = board;
+            this.player = player;
+            this.hash = Arrays.hashCode(board) * 31 + player;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).player == player && Arrays.equals(((Key) o).board, board);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Entry {
+        final Key key;
+        final Analysis analysis;
+        final long bytes;
+        // CLOCK reference bit
+        volatile boolean referenced;
+
+        Entry(Key key, Analysis analysis, long bytes) {
+            this.key = key;
+            this.analysis = analysis;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long maxBytes;
+    private final Eviction eviction;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes The estimated memory the entries may take, in bytes. Each segment gets an equal share,
+     *                 positions are not cached if one entry does not fit in a share.
+     * @param eviction The eviction policy.
+     */
+    AnalysisCache(long maxBytes, Eviction eviction) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.eviction = eviction;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = eviction == Eviction.LRU ? new LruSegment(maxBytes / SEGMENTS) : new ClockSegment(maxBytes / SEGMENTS);
+        }
+    }
+
+    /**
+     * Get the analysis of a position, computing and caching it on a miss.
+     * @param player The player in turn. BLACK 1 or WHITE 2
+     * @param board The board.
+     * @param rules The game whose rules compute the analysis.
+     * @return The analysis.
+     */
+    Analysis get(int player, int[][] board, Othello rules) {
+        Key key = new Key(rules.packBoard(board), player);
+        Segment segment = segments[(key.hash ^ (key.hash >>> 16)) & (SEGMENTS - 1)];
+        Entry entry = segment.get(key);
+        if (entry != null) {
+            hits.increment();
+            return entry.analysis;
+        }
+        misses.increment();
+        // computed outside the segment lock, two threads may compute the same position once each
+        Analysis analysis = new Analysis(rules.validMoves(player, board), key.board);
+        segment.put(new Entry(key, analysis, weigh(board.length)));
+        return analysis;
+    }
+
+    /**
+     * Estimate the memory taken by one entry for a board of the given size: the key with its packed board,
+     * the analysis with its moves and best move once computed, and the map and eviction bookkeeping, assuming
+     * 16 byte object headers and 4 byte references.
+     * @param size The board size.
+     * @return The estimated number of bytes.
+     */
+    static long weigh(int size) {
+        long key = 24 + 16 + size * size;
+        long moves = 24 + 16 + 4L * size + size * (16 + 4L * size);
+        long analysis = 32;
+        long bestMove = 16 + 8;
+        long bookkeeping = 32 + 48;
+        return key + moves + analysis + bestMove + bookkeeping;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The share of lookups answered from the cache, 0 if there were none.
+     */
+    double hitRatio() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return The estimated memory taken by the entries, in bytes.
+     */
+    long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The number of cached positions.
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AnalysisCache[%s, %d entries, %d/%d bytes, hit ratio %.3f, %d evictions]",
+                eviction, size(), bytes(), maxBytes, hitRatio(), evictions());
+    }
+
+    private abstract class Segment {
+        final long maxBytes;
+        long bytes;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        abstract Entry get(Key key);
+
+        // an entry larger than the share of the budget of the segment is not cached
+        abstract void put(Entry entry);
+
+        abstract int size();
+    }
+
+    private class LruSegment extends Segment {
+        private final LinkedHashMap<Key, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+
+        LruSegment(long maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        synchronized Entry get(Key key) {
+            return map.get(key);
+        }
+
+        @Override
+        synchronized void put(Entry entry) {
+            if (entry.bytes > maxBytes) {
+                return;
+            }
+            Entry previous = map.put(entry.key, entry);
+            bytes += entry.bytes - (previous == null ? 0 : previous.bytes);
+            Iterator<Entry> eldest = map.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().bytes;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        @Override
+        int size() {
+            return map.size();
+        }
+    }
+
+    private class ClockSegment extends Segment {
+        // read without the segment lock, written with it
+        private final Map<Key, Entry> map = new ConcurrentHashMap<>();
+        // the clock, a circular buffer with null in the slots freed by #evict and not reused yet
+        private final List<Entry> ring = new ArrayList<>();
+        private final Deque<Integer> free = new ArrayDeque<>();
+        private int hand;
+
+        ClockSegment(long maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        Entry get(Key key) {
+            Entry entry = map.get(key);
+            // do not write the flag again, it is shared by all the threads that hit the entry
+            if (entry != null && !entry.referenced) {
+                entry.referenced = true;
+            }
+            return entry;
+        }
+
+        @Override
+        synchronized void put(Entry entry) {
+            if (map.containsKey(entry.key) || entry.bytes > maxBytes) {
+                return;
+            }
+            while (bytes + entry.bytes > maxBytes && !map.isEmpty()) {
+                evict();
+            }
+            map.put(entry.key, entry);
+            Integer slot = free.pollFirst();
+            if (slot == null) {
+                ring.add(entry);
+            } else {
+                ring.set(slot, entry);
+            }
+            bytes += entry.bytes;
+        }
+
+        // advance the hand, giving referenced entries a second chance, and evict the first one that is not
+        private void evict() {
+            while (true) {
+                if (hand >= ring.size()) {
+                    hand = 0;
+                }
+                Entry candidate = ring.get(hand);
+                if (candidate != null && candidate.referenced) {
+                    candidate.referenced = false;
+                } else if (candidate != null) {
+                    ring.set(hand, null);
+                    free.addLast(hand++);
+                    map.remove(candidate.key);
+                    bytes -= candidate.bytes;
+                    evictions.increment();
+                    return;
+                }
+                hand++;
+            }
+        }
+
+        @Override
+        int size() {
+            return map.size();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package othello;
+
+/**
+ * Bitboard move generation for 8x8 boards. <br/>
+ * A board is packed into two long values, one per player, where bit (row * 8 + col) is set if the
+ * player has a piece on that square. Used for batches of independent positions, e.g. self-play workers
+ * or batch analysis, where #Othello.hasValidMoves on the int[][] board is too slow.
+ */
+class Bitboard {
+
+    static final int SIZE = 8;
+
+    // squares not in column a or h, used to stop horizontal and diagonal shifts from wrapping to the next row
+    static final long NOT_EDGE_COLUMNS = 0x7E7E7E7E7E7E7E7EL;
+
+    /**
+     * The shift of a bit index for one step toward each #Othello.Direction, in the same order.
+     */
+    static final int[] SHIFTS = {1, 9, 8, 7, -1, -9, -8, -7};
+
+    /**
+     * The mask applied to the opponent pieces for each of #SHIFTS.
+     */
+    static final long[] MASKS = {NOT_EDGE_COLUMNS, NOT_EDGE_COLUMNS, -1L, NOT_EDGE_COLUMNS,
+            NOT_EDGE_COLUMNS, NOT_EDGE_COLUMNS, -1L, NOT_EDGE_COLUMNS};
+
+    /**
+     * Computes legal-move masks and flips for many packed boards at once.
+     */
+    interface BatchMoveGenerator {
+        /**
+         * @param own The pieces of the player in turn, one packed board per element.
+         * @param opp The pieces of the opponent.
+         * @param moves Receives the legal-move mask of each board.
+         * @param n The number of boards.
+         */
+        void moves(long[] own, long[] opp, long[] moves, int n);
+
+        /**
+         * @param own The pieces of the player in turn, one packed board per element.
+         * @param opp The pieces of the opponent.
+         * @param move The single-bit move played on each board.
+         * @param flips Receives the pieces flipped by the move on each board.
+         * @param n The number of boards.
+         */
+        void flips(long[] own, long[] opp, long[] move, long[] flips, int n);
+    }
+
+    /**
+     * Scalar implementation, one board at a time.
+     */
+    static final BatchMoveGenerator SCALAR = new BatchMoveGenerator() {
+        @Override
+        public void moves(long[] own, long[] opp, long[] moves, int n) {
+            for (int i = 0; i < n; i++) {
+                moves[i] = Bitboard.moves(own[i], opp[i]);
+            }
+        }
+
+        @Override
+        public void flips(long[] own, long[] opp, long[] move, long[] flips, int n) {
+            for (int i = 0; i < n; i++) {
+                flips[i] = Bitboard.flips(own[i], opp[i], move[i]);
+            }
+        }
+    };
+
+    private static volatile BatchMoveGenerator batch;
+
+    /**
+     * Get the fastest available batch move generator. This is the Vector API implementation when the
+     * jdk.incubator.vector module is available at run time (e.g. java --add-modules jdk.incubator.vector)
+     * and the classes were built with the 'vector' profile, and #SCALAR otherwise.
+     * @return The batch move generator.
+     */
+    static BatchMoveGenerator batch() {
+        if (batch == null) {
+            batch = loadVector();
+        }
+        return batch;
+    }
+
+    private static BatchMoveGenerator loadVector() {
+        try {
+            Class<?> c = Class.forName("othello.VectorMoveGenerator");
+            return (BatchMoveGenerator) c.getDeclaredConstructor().newInstance();
+        } catch (Exception | LinkageError e) {
+            // fall back to scalar code
+            return SCALAR;
+        }
+    }
+
+    /**
+     * Pack the pieces of the #player on an 8x8 #board.
+     * @param board The board.
+     * @param player BLACK 1 or WHITE 2
+     * @return The packed pieces.
+     */
+    static long pack(int[][] board, int player) {
+        if (board.length != SIZE) {
+            throw new IllegalArgumentException("Bitboard only supports 8x8 boards: " + board.length);
+        }
+        long bits = 0;
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                if (board[row][col] == player) {
+                    bits |= 1L << (row * SIZE + col);
+                }
+            }
+        }
+        return bits;
+    }
+
+    static long shift(long bits, int shift) {
+        return shift > 0 ? bits << shift : bits >>> -shift;
+    }
+
+    /**
+     * Compute the legal moves of the player owning #own.
+     * @param own The pieces of the player in turn.
+     * @param opp The pieces of the opponent.
+     * @return The mask of the legal moves.
+     */
+    static long moves(long own, long opp) {
+        long empty = ~(own | opp);
+        long moves = 0;
+        for (int d = 0; d < SHIFTS.length; d++) {
+            int s = SHIFTS[d];
+            long o = opp & MASKS[d];
+            // a line of at most 6 opponent pieces next to an own piece
+            long x = shift(own, s) & o;
+            for (int i = 0; i < 5; i++) {
+                x |= shift(x, s) & o;
+            }
+            moves |= shift(x, s) & empty;
+        }
+        return moves;
+    }
+
+    /**
+     * Same as #moves, but keeps the legal moves found toward each direction apart.
+     * @param own The pieces of the player in turn.
+     * @param opp The pieces of the opponent.
+     * @param directionMoves Receives for each of #SHIFTS the moves that bracket opponent pieces in the
+     *                       opposite direction, i.e. from the move back toward an own piece.
+     * @return The mask of the legal moves.
+     */
+    static long moves(long own, long opp, long[] directionMoves) {
+        long empty = ~(own | opp);
+        long moves = 0;
+        for (int d = 0; d < SHIFTS.length; d++) {
+            int s = SHIFTS[d];
+            long o = opp & MASKS[d];
+            long x = shift(own, s) & o;
+            for (int i = 0; i < 5; i++) {
+                x |= shift(x, s) & o;
+            }
+            directionMoves[d] = shift(x, s) & empty;
+            moves |= directionMoves[d];
+        }
+        return moves;
+    }
+
+    /**
+     * Compute the pieces flipped when the player owning #own plays #move.
+     * @param own The pieces of the player in turn.
+     * @param opp The pieces of the opponent.
+     * @param move The move, a single bit.
+     * @return The flipped pieces, 0 if the move is not legal.
+     */
+    static long flips(long own, long opp, long move) {
+        long flips = 0;
+        for (int d = 0; d < SHIFTS.length; d++) {
+            int s = SHIFTS[d];
+            long o = opp & MASKS[d];
+            // the line of opponent pieces next to the move
+            long f = shift(move, s) & o;
+            for (int i = 0; i < 5; i++) {
+                f |= shift(f, s) & o;
+            }
+            // flipped only if bracketed by an own piece
+            if ((shift(f, s) & own) != 0) {
+                flips |= f;
+            }
+        }
+        return flips;
+    }
+
+    /**
+     * Mirror the board left to right, column a becomes column h.
+     */
+    static long mirrorHorizontal(long x) {
+        x = ((x >>> 1) & 0x5555555555555555L) | ((x & 0x5555555555555555L) << 1);
+        x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+        x = ((x >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((x & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return x;
+    }
+
+    /**
+     * Flip the board upside down, row 1 becomes row 8.
+     */
+    static long flipVertical(long x) {
+        return Long.reverseBytes(x);
+    }
+
+    /**
+     * Flip the board about the a1-h8 diagonal, the square at (row, col) moves to (col, row).
+     */
+    static long flipDiagonal(long x) {
+        long t = 0x0F0F0F0F00000000L & (x ^ (x << 28));
+        x ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (x ^ (x << 14));
+        x ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (x ^ (x << 7));
+        x ^= t ^ (t >>> 7);
+        return x;
+    }
+
+    /**
+     * Apply one of the 8 symmetries of the square board.
+     * @param x The packed pieces.
+     * @param symmetry 0 to 7. Bit 0 mirrors horizontally, bit 1 flips vertically and bit 2 flips about the diagonal.
+     * @return The transformed pieces.
+     */
+    static long symmetry(long x, int symmetry) {
+        if ((symmetry & 1) != 0) {
+            x = mirrorHorizontal(x);
+        }
+        if ((symmetry & 2) != 0) {
+            x = flipVertical(x);
+        }
+        if ((symmetry & 4) != 0) {
+            x = flipDiagonal(x);
+        }
+        return x;
+    }
+
+    /**
+     * Find the symmetry that maps the position to its canonical form, the smallest (own, opp) pair of
+     * all 8 symmetric positions. Symmetric positions share the same canonical form.
+     * @param own The pieces of the player in turn.
+     * @param opp The pieces of the opponent.
+     * @return The symmetry to pass to #symmetry.
+     */
+    static int canonicalSymmetry(long own, long opp) {
+        int best = 0;
+        long bestOwn = own;
+        long bestOpp = opp;
+        for (int i = 1; i < 8; i++) {
+            long o = symmetry(own, i);
+            long p = symmetry(opp, i);
+            if (o < bestOwn || (o == bestOwn && p < bestOpp)) {
+                best = i;
+                bestOwn = o;
+                bestOpp = p;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,484 @@
+package othello;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Non-blocking input driver that hosts many human games in one process. <br/>
+ * Each game is bound to an input and an output channel (a socket, or the two ends of a pipe) and reads
+ * its moves from the input the same way #Othello.getMove reads them from System.in: whitespace separated
+ * tokens, either a move like "3d" or "u" for undo. The board and prompts are written back to the output.
+ * Games are spread over a fixed number of selector threads, so thousands of games share a few threads
+ * instead of blocking one thread each in #Othello.playGame.
+ */
+class InputDriver implements Closeable {
+
+    private final Loop[] loops;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger games = new AtomicInteger();
+    private final AnalysisCache cache;
+
+    /**
+     * @param threads The number of selector threads.
+     * @throws IOException If a selector cannot be opened.
+     */
+    InputDriver(int threads) throws IOException {
+        this(threads, null);
+    }
+
+    /**
+     * @param threads The number of selector threads.
+     * @param cache The analysis cache shared by all the hosted games, or null for no caching.
+     * @throws IOException If a selector cannot be opened.
+     */
+    InputDriver(int threads, AnalysisCache cache) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.cache = cache;
+        loops = new Loop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new Loop("othello-input-" + i);
+        }
+        for (Loop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /**
+     * Host a new game of the given #size on a socket. The socket is closed when the game ends.
+     * @param channel The connected socket.
+     * @param size The board size.
+     * @throws IOException If the socket cannot be switched to non-blocking mode.
+     */
+    void register(SocketChannel channel, int size) throws IOException {
+        register(channel, channel, size, null, null);
+    }
+
+    /**
+     * Host a new game of the given #size reading moves from #in and writing the board to #out.
+     * Both channels are closed when the game ends.
+     * @param in The channel to read moves from.
+     * @param out The channel to write the board and prompts to. May be the same channel as #in.
+     * @param size The board size.
+     * @throws IOException If a channel cannot be switched to non-blocking mode.
+     */
+    <I extends SelectableChannel & ReadableByteChannel, O extends SelectableChannel & WritableByteChannel>
+    void register(I in, O out, int size) throws IOException {
+        register(in, out, size, null, null);
+    }
+
+    /**
+     * Host a new game of the given #size reading moves from #in and writing the board to #out.
+     * Both channels are closed when the game ends.
+     * @param in The channel to read moves from.
+     * @param out The channel to write the board and prompts to. May be the same channel as #in.
+     * @param size The board size.
+     * @param black Creates the black Player of the game, e.g. RandomAI::new. null if black is the human at #in.
+     * @param white Creates the white Player of the game. null if white is the human at #in.
+     * @throws IOException If a channel cannot be switched to non-blocking mode.
+     */
+    <I extends SelectableChannel & ReadableByteChannel, O extends SelectableChannel & WritableByteChannel>
+    void register(I in, O out, int size, Function<Othello, Player> black, Function<Othello, Player> white) throws IOException {
+        in.configureBlocking(false);
+        out.configureBlocking(false);
+        games.incrementAndGet();
+        nextLoop().add(new Session(in, out, size, black, white));
+    }
+
+    /**
+     * Accept connections on #server and host a new game for each of them.
+     * @param server The bound server socket.
+     * @param size The board size of the hosted games.
+     * @throws IOException If the server socket cannot be switched to non-blocking mode.
+     */
+    void serve(ServerSocketChannel server, int size) throws IOException {
+        serve(server, size, null, null);
+    }
+
+    /**
+     * Accept connections on #server and host a new game for each of them.
+     * @param server The bound server socket.
+     * @param size The board size of the hosted games.
+     * @param black Creates the black Player of each game. null if black is the human at the socket.
+     * @param white Creates the white Player of each game. null if white is the human at the socket.
+     * @throws IOException If the server socket cannot be switched to non-blocking mode.
+     */
+    void serve(ServerSocketChannel server, int size, Function<Othello, Player> black, Function<Othello, Player> white) throws IOException {
+        server.configureBlocking(false);
+        Loop loop = nextLoop();
+        loop.add(new Acceptor(loop, server, size, black, white));
+    }
+
+    /**
+     * @return The number of games in progress.
+     */
+    int games() {
+        return games.get();
+    }
+
+    private Loop nextLoop() {
+        return loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+    }
+
+    /**
+     * Stop all selector threads and close every channel they serve.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Loop loop : loops) {
+            loop.running = false;
+            loop.selector.wakeup();
+        }
+        for (Loop loop : loops) {
+            try {
+                loop.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (SelectionKey key : loop.selector.keys()) {
+                key.channel().close();
+            }
+            loop.selector.close();
+        }
+    }
+
+    /**
+     * Something that is registered with a selector and handles its ready keys.
+     */
+    private interface Handler {
+        void register(Selector selector) throws IOException;
+
+        void handle(SelectionKey key) throws IOException;
+
+        void close();
+    }
+
+    /**
+     * A selector thread.
+     */
+    private static class Loop implements Runnable {
+        final Selector selector;
+        final Queue<Handler> pending = new ConcurrentLinkedQueue<>();
+        final Thread thread;
+        volatile boolean running = true;
+        // set when the selector fails, the handlers added afterwards are closed at once
+        volatile boolean failed;
+        // tasks run by the selector thread once #delayedAt has passed
+        private final List<Runnable> delayed = new ArrayList<>();
+        private long delayedAt;
+
+        Loop(String name) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        // channels can only be registered by the selector thread without blocking on select()
+        void add(Handler handler) {
+            pending.add(handler);
+            if (failed) {
+                closePending();
+            } else {
+                selector.wakeup();
+            }
+        }
+
+        // run #task on the selector thread after about #millis, only called by the selector thread
+        void later(Runnable task, long millis) {
+            long at = System.currentTimeMillis() + millis;
+            delayedAt = delayed.isEmpty() ? at : Math.min(delayedAt, at);
+            delayed.add(task);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    if (delayed.isEmpty()) {
+                        selector.select();
+                    } else {
+                        selector.select(Math.max(1, delayedAt - System.currentTimeMillis()));
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    fail();
+                    return;
+                }
+                if (!delayed.isEmpty() && System.currentTimeMillis() >= delayedAt) {
+                    List<Runnable> tasks = new ArrayList<>(delayed);
+                    delayed.clear();
+                    tasks.forEach(Runnable::run);
+                }
+                Handler handler;
+                while ((handler = pending.poll()) != null) {
+                    try {
+                        handler.register(selector);
+                    } catch (IOException | RuntimeException e) {
+                        handler.close();
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    // the key is cancelled if its session was closed while handling another key
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    Handler attachment = (Handler) key.attachment();
+                    // one failing handler must not stop the other games of the loop
+                    try {
+                        attachment.handle(key);
+                    } catch (IOException | RuntimeException e) {
+                        attachment.close();
+                    }
+                }
+            }
+        }
+
+        // the selector is unusable, close its games so their peers are not left waiting
+        private void fail() {
+            failed = true;
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    ((Handler) key.attachment()).close();
+                }
+            } catch (RuntimeException e) {
+                // ignore
+            }
+            closePending();
+        }
+
+        private void closePending() {
+            Handler handler;
+            while ((handler = pending.poll()) != null) {
+                handler.close();
+            }
+        }
+    }
+
+    /**
+     * Accepts connections and registers a game for each of them.
+     */
+    private class Acceptor implements Handler {
+        // how long to stop accepting after accept() failed, e.g. when out of file descriptors
+        private static final long RETRY_MILLIS = 100;
+
+        private final Loop loop;
+        private final ServerSocketChannel server;
+        private final int size;
+        private final Function<Othello, Player> black;
+        private final Function<Othello, Player> white;
+
+        Acceptor(Loop loop, ServerSocketChannel server, int size, Function<Othello, Player> black, Function<Othello, Player> white) {
+            this.loop = loop;
+            this.server = server;
+            this.size = size;
+            this.black = black;
+            this.white = white;
+        }
+
+        @Override
+        public void register(Selector selector) throws ClosedChannelException {
+            server.register(selector, SelectionKey.OP_ACCEPT, this);
+        }
+
+        @Override
+        public void handle(SelectionKey key) {
+            while (true) {
+                SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (IOException e) {
+                    // the connection stays ready, so stop selecting it for a while instead of spinning on it
+                    key.interestOps(0);
+                    loop.later(() -> {
+                        if (key.isValid()) {
+                            key.interestOps(SelectionKey.OP_ACCEPT);
+                        }
+                    }, RETRY_MILLIS);
+                    return;
+                }
+                if (channel == null) {
+                    return;
+                }
+                try {
+                    InputDriver.this.register(channel, channel, size, black, white);
+                } catch (IOException | RuntimeException e) {
+                    // give up on this client only
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // ignore
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * One game bound to its input and output channels.
+     */
+    private class Session implements Handler {
+        // the output queued for a peer that does not read it, beyond which its input is no longer read
+        private static final int MAX_QUEUED = 64 * 1024;
+        // only the first characters of a move are parsed, the rest of a longer token is dropped
+        private static final int MAX_TOKEN = 16;
+
+        private final ReadableByteChannel in;
+        private final WritableByteChannel out;
+        private final Othello game;
+        // what the game printed and is not yet copied into #write
+        private final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        // input read but not played yet, while the output is backed up
+        private final ByteBuffer read = ByteBuffer.allocate(256);
+        private final StringBuilder token = new StringBuilder();
+        // output not written yet, in fill mode, grown when the game prints more than fits
+        private ByteBuffer write = ByteBuffer.allocate(1024);
+        private SelectionKey inKey;
+        private SelectionKey outKey;
+        private final Player black;
+        private final Player white;
+        private boolean over;
+        private boolean closed;
+
+        Session(ReadableByteChannel in, WritableByteChannel out, int size, Function<Othello, Player> black, Function<Othello, Player> white) {
+            this.in = in;
+            this.out = out;
+            this.game = new Othello(size);
+            this.game.out = new PrintStream(printed, true);
+            this.game.cache = cache;
+            this.black = black == null ? null : black.apply(game);
+            this.white = white == null ? null : white.apply(game);
+        }
+
+        @Override
+        public void register(Selector selector) throws IOException {
+            inKey = ((SelectableChannel) in).register(selector, SelectionKey.OP_READ, this);
+            if (in == out) {
+                outKey = inKey;
+            } else {
+                outKey = ((SelectableChannel) out).register(selector, 0, this);
+            }
+            over = game.startGame(black, white);
+            flush();
+        }
+
+        @Override
+        public void handle(SelectionKey key) throws IOException {
+            if (key.isValid() && key.isReadable()) {
+                read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush();
+            }
+        }
+
+        private void read() throws IOException {
+            int n = in.read(read);
+            if (n < 0) {
+                close();
+                return;
+            }
+            play();
+            flush();
+        }
+
+        // play the input read so far, until the game ends or the output backs up
+        private void play() {
+            read.flip();
+            // split the input into tokens the same way Scanner.next() does
+            while (read.hasRemaining() && !over && write.position() + printed.size() < MAX_QUEUED) {
+                char c = (char) read.get();
+                if (!Character.isWhitespace(c)) {
+                    if (token.length() < MAX_TOKEN) {
+                        token.append(c);
+                    }
+                } else if (token.length() > 0) {
+                    over = game.playInput(token.toString(), black, white);
+                    token.setLength(0);
+                }
+            }
+            read.compact();
+        }
+
+        private void flush() throws IOException {
+            while (true) {
+                if (printed.size() > write.remaining()) {
+                    ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * write.capacity(), write.position() + printed.size()));
+                    write.flip();
+                    write = grown.put(write);
+                }
+                write.put(printed.toByteArray());
+                printed.reset();
+                write.flip();
+                out.write(write);
+                write.compact();
+                if (write.position() > 0) {
+                    // the peer does not keep up, stop playing its input until the output drains
+                    outKey.interestOps(outKey.interestOps() | SelectionKey.OP_WRITE);
+                    inKey.interestOps(inKey.interestOps() & ~SelectionKey.OP_READ);
+                    return;
+                }
+                outKey.interestOps(outKey.interestOps() & ~SelectionKey.OP_WRITE);
+                if (over) {
+                    close();
+                    return;
+                }
+                if (read.position() == 0) {
+                    inKey.interestOps(inKey.interestOps() | SelectionKey.OP_READ);
+                    return;
+                }
+                // input left over from when the output backed up
+                play();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            games.decrementAndGet();
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package othello;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.util.*;
 // TODO: restrict access of fields and methods that are only used by test cases.
 public class Othello {
@@ -15,6 +19,18 @@ public class Othello {
     public static final int WHITE = 2;
 
     private Scanner scan;
+
+    /**
+     * The stream the board, prompts and messages are printed to. System.out by default.
+     */
+    PrintStream out = System.out;
+
+    /**
+     * The cache of per-position analysis consulted by #turnMoves, so positions seen again, e.g. after #undo,
+     * are not scanned again. May be shared by many games. null for no caching.
+     */
+    AnalysisCache cache;
+
     /**
      * isUnDo flag is used in #playGame method for 'undo' related flow control.<br/>
      * Always remember to set it to false after undo is done.
@@ -28,6 +44,28 @@ public class Othello {
      */
     int[][] history;
 
+    /**
+     * Default number of moves between two board snapshots in #checkpoints.
+     */
+    static final int DEFAULT_CHECKPOINT_INTERVAL = 8;
+
+    /**
+     * Default size of the #cache created by #main, in bytes.
+     */
+    static final long DEFAULT_CACHE_BYTES = 64L << 20;
+
+    /**
+     * Number of moves between two board snapshots in #checkpoints.
+     */
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * The checkpoints array stores compact snapshots of the board taken alongside #history. <br/>
+     * checkpoints[k] is the board after the first (k + 1) * #checkpointInterval moves, packed by #packBoard,
+     * or null if no snapshot has been taken for that move count.
+     */
+    byte[][] checkpoints;
+
     /**
      * Direction stores the relative coordinate of all the adjacent pieces on 8 directions.
      */
@@ -52,6 +90,53 @@ public class Othello {
         }
     }
 
+    /**
+     * Cached Direction.values(), which clones the array on every call.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // the row and column steps of #DIRECTIONS, kept in plain arrays for the move generation loops
+    private static final int[] ROW_STEPS = new int[DIRECTIONS.length];
+    private static final int[] COL_STEPS = new int[DIRECTIONS.length];
+
+    static {
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            ROW_STEPS[d] = DIRECTIONS[d].rc[0];
+            COL_STEPS[d] = DIRECTIONS[d].rc[1];
+        }
+    }
+
+    /**
+     * The valid moves of a player on a board, computed once per turn by #validMoves and shared by
+     * end of game detection, pass handling, move validation and flipping in #playGame.
+     */
+    static class Moves {
+        /**
+         * The player the moves are for. BLACK 1 or WHITE 2
+         */
+        final int player;
+        /**
+         * directions[row][col] has bit d set if the move at (row, col) brackets opponent pieces toward
+         * the d-th #Direction. 0 if the move is not valid.
+         */
+        final int[][] directions;
+        /**
+         * The number of valid moves.
+         */
+        final int count;
+
+        Moves(int player, int[][] directions, int count) {
+            this.player = player;
+            this.directions = directions;
+            this.count = count;
+        }
+
+        boolean isValid(int row, int col) {
+            return row > -1 && row < directions.length && col > -1 && col < directions.length
+                    && directions[row][col] != 0;
+        }
+    }
+
     /**
      * The board. The two dimension int array board[rows][columns] stores the color of all the pieces on the board.
      * Value of the int element could be either 0 (NONE), 1 (BLACK), or 2(WHITE).
@@ -69,13 +154,28 @@ public class Othello {
 
     }
 
+    /**
+     * @param size The board size.
+     * @param checkpointInterval Number of moves between two board snapshots. See #checkpoints.
+     */
+    public Othello(int size, int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+        }
+        this.checkpointInterval = checkpointInterval;
+        init(size);
+    }
+
+    int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
     // reset the board and initialize the class
     private void init(int size) {
         board = createBoard(size);
         history = resetHistory(size);
+        checkpoints = new byte[size * size / checkpointInterval][];
         inTurn = BLACK;
-        // initialize the scanner for reading user input
-        scan = new Scanner(System.in);
     }
 
     // reset the history
@@ -87,10 +187,12 @@ public class Othello {
     int[][] createBoard(int size) {
         // create the initial state of the game
         int[][] board = new int[size][size];
-        board[3][4] = BLACK;
-        board[4][3] = BLACK;
-        board[3][3] = WHITE;
-        board[4][4] = WHITE;
+        // the four pieces in the center, e.g. d4 and e5 are white on a 8x8 board
+        int center = size / 2;
+        board[center - 1][center] = BLACK;
+        board[center][center - 1] = BLACK;
+        board[center - 1][center - 1] = WHITE;
+        board[center][center] = WHITE;
         return board;
     }
 
@@ -182,6 +284,134 @@ public class Othello {
     }
 
 
+    /**
+     * Compute all the valid moves of the #player with a single scan of the board.
+     * @param player The player who is play. BLACK 1 or WHITE 2
+     * @param board The board.
+     * @return The valid moves.
+     * @see #Moves
+     */
+    Moves validMoves(int player, int[][] board) {
+        if (board.length == Bitboard.SIZE) {
+            return validMoves8(player, board);
+        }
+        int[][] valid = new int[board.length][board.length];
+        int count = 0;
+        int opponent = opponent(player);
+        for (int row = 0; row < board.length; row++) {
+            for (int col = 0; col < board.length; col++) {
+                if (board[row][col] != NONE) {
+                    continue;
+                }
+                int directions = 0;
+                for (int d = 0; d < ROW_STEPS.length; d++) {
+                    if (brackets(row, col, player, opponent, ROW_STEPS[d], COL_STEPS[d], board)) {
+                        directions |= 1 << d;
+                    }
+                }
+                if (directions != 0) {
+                    valid[row][col] = directions;
+                    count++;
+                }
+            }
+        }
+        return new Moves(player, valid, count);
+    }
+
+    // #validMoves on the standard 8x8 board, using the direction fills of #Bitboard instead of walking every line
+    private Moves validMoves8(int player, int[][] board) {
+        int[][] valid = new int[Bitboard.SIZE][Bitboard.SIZE];
+        long[] directionMoves = new long[DIRECTIONS.length];
+        long own = 0;
+        long opp = 0;
+        for (int row = 0; row < Bitboard.SIZE; row++) {
+            for (int col = 0; col < Bitboard.SIZE; col++) {
+                if (board[row][col] == player) {
+                    own |= 1L << (row * Bitboard.SIZE + col);
+                } else if (board[row][col] != NONE) {
+                    opp |= 1L << (row * Bitboard.SIZE + col);
+                }
+            }
+        }
+        long all = Bitboard.moves(own, opp, directionMoves);
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            // found by walking from an own piece toward direction d, so the move brackets toward the opposite one
+            int bit = 1 << ((d + DIRECTIONS.length / 2) % DIRECTIONS.length);
+            for (long m = directionMoves[d]; m != 0; m &= m - 1) {
+                int square = Long.numberOfTrailingZeros(m);
+                valid[square / Bitboard.SIZE][square % Bitboard.SIZE] |= bit;
+            }
+        }
+        return new Moves(player, valid, Long.bitCount(all));
+    }
+
+    /**
+     * Same as #findBracketingPiece, without allocating the positions.
+     * @return true if there is a bracketing piece on the direction (#dr, #dc).
+     */
+    private boolean brackets(int row, int col, int player, int opponent, int dr, int dc, int[][] board) {
+        int r = row + dr;
+        int c = col + dc;
+        // at least one piece of opponent color
+        if (r < 0 || r >= board.length || c < 0 || c >= board.length || board[r][c] != opponent) {
+            return false;
+        }
+        // step through the line of opponent color
+        do {
+            r += dr;
+            c += dc;
+        } while (r > -1 && r < board.length && c > -1 && c < board.length && board[r][c] == opponent);
+        // the bracketing piece
+        return r > -1 && r < board.length && c > -1 && c < board.length && board[r][c] == player;
+    }
+
+    /**
+     * Compute the moves of the current turn. If the player in turn has no valid move, the turn passes
+     * and the moves of the opponent are returned.
+     * @return The moves of the player to play, or null if neither player can move, i.e. the end of the game.
+     * @see #endOfGame
+     */
+    Moves turnMoves() {
+        Moves moves = cachedMoves(getTurn(), board);
+        if (moves.count == 0) {
+            moves = cachedMoves(opponent(getTurn()), board);
+            if (moves.count == 0) {
+                return null;
+            }
+        }
+        return moves;
+    }
+
+    // #validMoves through the #cache if there is one
+    private Moves cachedMoves(int player, int[][] board) {
+        return cache == null ? validMoves(player, board) : cache.get(player, board, this).moves;
+    }
+
+    /**
+     * Make the actual move on the given #directions computed by #validMoves, without searching for the
+     * bracketing pieces again.
+     * @param row Row index of the target position
+     * @param col Column index of the target position
+     * @param player The player who is play. BLACK 1 or WHITE 2
+     * @param board The board.
+     * @param directions The bracketing directions of the move. See #Moves.directions.
+     */
+    void makeMove(int row, int col, int player, int[][] board, int directions) {
+        // fill the move targeted piece
+        board[row][col] = player;
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if ((directions & (1 << d)) == 0) {
+                continue;
+            }
+            // flip the bracketed pieces
+            int dr = ROW_STEPS[d];
+            int dc = COL_STEPS[d];
+            for (int r = row + dr, c = col + dc; board[r][c] != player; r += dr, c += dc) {
+                board[r][c] = player;
+            }
+        }
+    }
+
     /**
      * Make the actual move to fill the target position with the #player's color.
      * @param row Row index of the target position
@@ -227,6 +457,38 @@ public class Othello {
         history[i] = new int[]{row, col, player};
     }
 
+    /**
+     * Count the recorded moves in the history[][]
+     * @param history The history.
+     * @return The number of non-null records.
+     * @see #history
+     */
+    int countMoves(int[][] history) {
+        int i = 0;
+        while (i < history.length && history[i] != null) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Format the recorded moves in the history[][] as a game record, e.g. "3d 3c 4c".
+     * Each move can be read back by #parseUserInput. Passes are not recorded.
+     * @param history The history.
+     * @return The game record.
+     * @see #history
+     */
+    String formatHistory(int[][] history) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < countMoves(history); i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(formatRow(history[i][0])).append(formatCol(history[i][1]));
+        }
+        return sb.toString();
+    }
+
     /**
      * Print the result of a game. Called by #playGame after the end of a game.
      * @param board The board.
@@ -246,15 +508,15 @@ public class Othello {
             }
         }
         // print the result
-        System.out.println("No further moves available");
+        out.println("No further moves available");
         if (black > white) {
             String winner = "X";
-            System.out.printf("Player '%s' wins ( %d vs %d)%n", winner, black, white);
+            out.printf("Player '%s' wins ( %d vs %d)%n", winner, black, white);
         } else if (black < white) {
             String winner = "O";
-            System.out.printf("Player '%s' wins ( %d vs %d)%n", winner, white, black);
+            out.printf("Player '%s' wins ( %d vs %d)%n", winner, white, black);
         } else if (black == white) {
-            System.out.printf("Game even ( %d vs %d)%n", black, white);
+            out.printf("Game even ( %d vs %d)%n", black, white);
         }
 
     }
@@ -305,19 +567,19 @@ public class Othello {
         printHeader(board);
         // print each line
         for (int i = 0; i < board.length; i++) {
-            System.out.printf("%s ",formatRow(i));
+            out.printf("%s ",formatRow(i));
             for (int j = 0; j < board.length; j++) {
                 if (board[i][j] == WHITE) {
-                    System.out.printf("O");
+                    out.printf("O");
                     numWhites++;
                 } else if (board[i][j] == BLACK) {
-                    System.out.printf("X");
+                    out.printf("X");
                     numBlacks++;
                 } else {
-                    System.out.printf("-");
+                    out.printf("-");
                 }
             }
-            System.out.println();
+            out.println();
         }
         printHeader(board);
         printFooter(numBlacks, numWhites);
@@ -326,18 +588,18 @@ public class Othello {
 
     // print footer
     private void printFooter(int numBlacks, int numWhites) {
-        System.out.println();
-        System.out.println("Black: " + numBlacks + " - " + "White: " + numWhites);
-        System.out.println();
+        out.println();
+        out.println("Black: " + numBlacks + " - " + "White: " + numWhites);
+        out.println();
     }
 
     // print header
     private void printHeader(int[][] board) {
-        System.out.printf("  ");
+        out.printf("  ");
         for (int i = 0; i < board.length; i++) {
-            System.out.printf(formatCol(i));
+            out.printf(formatCol(i));
         }
-        System.out.println();
+        out.println();
     }
 
     // format row index to human readable number(starting from 1)
@@ -366,7 +628,20 @@ public class Othello {
      * @return The move.
      */
     int[] getMove(int turn) {
+        // initialize the scanner for reading user input on first use
+        if (scan == null) {
+            scan = new Scanner(System.in);
+        }
         String s = getUserInput(turn, scan);
+        return readMove(s);
+    }
+
+    /**
+     * Read a move from a token of user input. Sets the #isUnDo flag if the input is 'u'.
+     * @param s The user input.
+     * @return The move, {-1, -1} for undo or if the input can not be parsed.
+     */
+    int[] readMove(String s) {
         if ("u".equals(s)) {
             this.isUnDo = true;
             return new int[] {-1, -1};
@@ -377,13 +652,17 @@ public class Othello {
 
     String getUserInput(int turn, Scanner scan) {
         String s = null;
-        // promote for user input
-        String player = turn == BLACK ? "X" : "O";
-        System.out.printf("Player '%s' move: ", player);
+        prompt(turn);
         s = scan.next();
         return s;
     }
 
+    // promote for user input
+    void prompt(int turn) {
+        String player = turn == BLACK ? "X" : "O";
+        out.printf("Player '%s' move: ", player);
+    }
+
     int[] parseUserInput(String s) {
         try {
             char[] rc = s.toCharArray();
@@ -392,8 +671,7 @@ public class Othello {
 
             return new int[]{row, col};
         } catch (Exception e) {
-            System.out.println("Failed to parse user input. '" + s + "'.");
-            e.printStackTrace();
+            out.println("Failed to parse user input. '" + s + "'.");
             return new int[]{-1, -1};
         }
 
@@ -408,20 +686,157 @@ public class Othello {
      * @see #history
      */
     void replay(int[][] history, int index, int[][] board) {
+        replay(history, 0, index, board);
+    }
+
+    /**
+     * Replay the recorded moves in #history from index #from to index #index (both inclusive) onto the #board.
+     * @param history The history.
+     * @param from The index of first record to play. Starting from 0.
+     * @param index The index of last record to play. Starting from 0.
+     * @param board The board. It must hold the position before the record at #from.
+     * @see #board
+     * @see #history
+     */
+    void replay(int[][] history, int from, int index, int[][] board) {
         index = Math.min(index +1, history.length);
-        for (int i=0; i < index; i++) {
+        for (int i = from; i < index; i++) {
             int[] record = history[i];
             makeMove(record[0], record[1], record[2], board);
-            // System.out.println("index: " + i);
-            // printBoard(board);
         }
     }
 
+    /**
+     * Create the board after the first (index +1) of recorded moves in #history.
+     * Starts from the nearest snapshot in #checkpoints and replays only the remaining moves.
+     * @param index The index of last record to play. Starting from 0. -1 for the initial board.
+     * @return The new board.
+     * @see #checkpoints
+     */
+    int[][] jumpTo(int index) {
+        int moves = Math.min(index + 1, history.length);
+        int k = Math.min(moves / checkpointInterval, checkpoints.length);
+        // find the nearest checkpoint at or before the target move
+        while (k > 0 && checkpoints[k - 1] == null) {
+            k--;
+        }
+        int[][] newBoard;
+        if (k > 0) {
+            newBoard = unpackBoard(checkpoints[k - 1], board.length);
+        } else {
+            newBoard = createBoard(board.length);
+        }
+        replay(history, k * checkpointInterval, index, newBoard);
+        return newBoard;
+    }
+
+    /**
+     * Take a snapshot of the #board into #checkpoints if #moves is a multiple of the checkpoint interval.
+     * Called by #playGame after a move is recorded.
+     * @param moves The number of recorded moves in #history the #board reflects.
+     * @param board The board.
+     */
+    void checkpoint(int moves, int[][] board) {
+        if (moves > 0 && moves % checkpointInterval == 0 && moves / checkpointInterval <= checkpoints.length) {
+            checkpoints[moves / checkpointInterval - 1] = packBoard(board);
+        }
+    }
+
+    /**
+     * Drop the snapshots that include the recorded move at #index or any move after it.
+     * @param index The index of the first discarded record in #history.
+     */
+    void discardCheckpoints(int index) {
+        for (int k = index / checkpointInterval; k < checkpoints.length; k++) {
+            checkpoints[k] = null;
+        }
+    }
+
+    /**
+     * Report the memory taken by the snapshots in #checkpoints, in bytes.
+     * Each snapshot is counted as its packed length plus an estimated 16 bytes of array header,
+     * and each slot of the #checkpoints array as one reference.
+     * @return The estimated number of bytes.
+     */
+    long checkpointMemory() {
+        long bytes = 16 + 4L * checkpoints.length;
+        for (byte[] snapshot : checkpoints) {
+            if (snapshot != null) {
+                bytes += 16 + snapshot.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Pack the #board into a compact byte[] array, one byte per square in row-major order.
+     * @param board The board.
+     * @return The packed board.
+     * @see #unpackBoard
+     */
+    byte[] packBoard(int[][] board) {
+        byte[] packed = new byte[board.length * board.length];
+        int i = 0;
+        for (int[] row : board) {
+            for (int col : row) {
+                packed[i++] = (byte) col;
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Unpack a board created by #packBoard.
+     * @param packed The packed board.
+     * @param size The board size.
+     * @return The board.
+     */
+    int[][] unpackBoard(byte[] packed, int size) {
+        int[][] board = new int[size][size];
+        for (int i = 0; i < packed.length; i++) {
+            board[i / size][i % size] = packed[i];
+        }
+        return board;
+    }
+
+    /**
+     * Copy a board.
+     * @param board The board.
+     * @return A copy that shares no rows with #board.
+     */
+    static int[][] copyBoard(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int i = 0; i < board.length; i++) {
+            copy[i] = board[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Count the pieces of the #player minus the pieces of the opponent.
+     * @param board The board.
+     * @param player BLACK 1 or WHITE 2
+     * @return The disc difference from the point of view of the #player.
+     */
+    static int discDifference(int[][] board, int player) {
+        int diff = 0;
+        for (int[] row : board) {
+            for (int col : row) {
+                if (col == player) {
+                    diff++;
+                } else if (col != NONE) {
+                    diff--;
+                }
+            }
+        }
+        return diff;
+    }
+
     /**
      * Undo the last move. This method is called by the #playGame when the #isUnDo flag is true.
-     * It creates a new board and replayed all the recorded moves in #history except the last one.
-     * It then replaces the Othello.board with the newly created board, as well as updates the
-     * value of other fields like #history, #isUnDo, and #inTurn.
+     * It restores the nearest snapshot in #checkpoints and replays the recorded moves in #history
+     * except the last one. It then replaces the Othello.board with the newly created board, as well as updates the
+     * value of other fields like #history, #checkpoints, #isUnDo, and #inTurn.
      */
     void undo() {
         // find the first null record
@@ -436,16 +851,15 @@ public class Othello {
         }
         // do nothing if no history records
         if (latestMove == -1) {
-            System.out.println("Warning: No history record found.");
+            out.println("Warning: No history record found.");
             return;
         }
 
-        // init a new board
-        int[][] newBoard = createBoard(board.length);
         // replay till the previous move
-        replay(this.history, latestMove-1, newBoard);
+        int[][] newBoard = jumpTo(latestMove - 1);
         this.inTurn = this.history[latestMove][2];
         this.history[latestMove] = null;
+        discardCheckpoints(latestMove);
         isUnDo = false;
         this.board = newBoard;
     }
@@ -457,38 +871,118 @@ public class Othello {
      */
     void playGame(Player black, Player white) {
         printBoard(board);
+        // the moves are computed once per turn, and again only when the board changes
+        Moves moves = null;
         while (true) {
-            if (endOfGame(this.board)) break;
-            // check who is in turn
-            int turn = getTurn();
-            turn = hasValidMoves(turn, board) ? turn : opponent(turn);
-
-            int[] xy = {-1,-1};
-            if (BLACK == turn) {
-                xy = black.getMove(turn, board);
-            } else if (WHITE == turn) {
-                xy = white.getMove(turn, board);
-            } else {
-                break;
-            }
-            if (isUnDo) {
-                undo();
-                printBoard(board);
-                continue;
+            if (moves == null) {
+                moves = turnMoves();
             }
-            if (!isValid(xy[0], xy[1], turn, board)) {
-                System.out.println("Invalid move. Please try again.");
-                continue;
-            } else {
-                makeMove(xy[0], xy[1], turn, board);
-                recordMove(xy[0], xy[1], turn, history);
-                this.inTurn = opponent(turn);
+            if (moves == null) break;
+            // check who is in turn, the turn passes if the player has no valid moves
+            int turn = moves.player;
+            int[] xy = (BLACK == turn ? black : white).getMove(turn, board);
+            if (playTurn(moves, xy)) {
+                moves = null;
             }
-            printBoard(board);
         }
         printResult(board);
     }
 
+    /**
+     * Play one turn of #playGame or #playInput: undo the previous move if the #isUnDo flag is set,
+     * otherwise validate the move #xy against the #moves of the turn, make and record it.
+     * The board is printed whenever it changes.
+     * @param moves The moves of the turn. See #turnMoves.
+     * @param xy The move chosen by the player in turn.
+     * @return true if the board changed, i.e. the moves of the next turn must be computed.
+     */
+    boolean playTurn(Moves moves, int[] xy) {
+        if (isUnDo) {
+            undo();
+            // undo() leaves the flag set when there is no history
+            isUnDo = false;
+            printBoard(board);
+            return true;
+        }
+        if (!moves.isValid(xy[0], xy[1])) {
+            out.println("Invalid move. Please try again.");
+            return false;
+        }
+        int turn = moves.player;
+        makeMove(xy[0], xy[1], turn, board, moves.directions[xy[0]][xy[1]]);
+        recordMove(xy[0], xy[1], turn, history);
+        checkpoint(countMoves(history), board);
+        this.inTurn = opponent(turn);
+        printBoard(board);
+        return true;
+    }
+
+    /**
+     * Start a game that is driven by #playInput instead of #playGame. Prints the board and the first prompt.
+     */
+    void startGame() {
+        startGame(null, null);
+    }
+
+    /**
+     * Start a game that is driven by #playInput instead of #playGame. Prints the board, lets the non-human
+     * player move if it is its turn, and prints the first prompt.
+     * @param black The black Player, or null if black is the human giving the input.
+     * @param white The white Player, or null if white is the human giving the input.
+     * @return true if the game has ended.
+     */
+    boolean startGame(Player black, Player white) {
+        printBoard(board);
+        return advance(turnMoves(), black, white);
+    }
+
+    /**
+     * Apply one token of user input to the game in progress of two human players. See #playInput(String, Player, Player).
+     * @param s The user input. Either a move like "3d" or "u" to undo the previous move.
+     * @return true if the game has ended.
+     */
+    boolean playInput(String s) {
+        return playInput(s, null, null);
+    }
+
+    /**
+     * Apply one token of user input as the turn of the human player in turn, the same way #playGame plays a turn,
+     * then let the non-human player take its turns. Prints the board followed by the next prompt or the result.
+     * Used by drivers that must not block waiting for input, e.g. #InputDriver.
+     * @param s The user input. Either a move like "3d" or "u" to undo the previous move.
+     * @param black The black Player, or null if black is the human giving the input.
+     * @param white The white Player, or null if white is the human giving the input.
+     * @return true if the game has ended.
+     */
+    boolean playInput(String s, Player black, Player white) {
+        // check who is in turn
+        Moves moves = turnMoves();
+        int[] xy = readMove(s);
+        if ((moves != null || isUnDo) && playTurn(moves, xy)) {
+            moves = turnMoves();
+        }
+        return advance(moves, black, white);
+    }
+
+    // play the turns of the non-human player, then print the prompt for the human or the result
+    private boolean advance(Moves moves, Player black, Player white) {
+        while (moves != null) {
+            Player player = BLACK == moves.player ? black : white;
+            if (player == null) {
+                break;
+            }
+            if (playTurn(moves, player.getMove(moves.player, board))) {
+                moves = turnMoves();
+            }
+        }
+        if (moves == null) {
+            printResult(board);
+            return true;
+        }
+        prompt(moves.player);
+        return false;
+    }
+
     private void playGame() {
         Player human = (turn, b) -> getMove(turn);
         // human player vs human player
@@ -497,12 +991,25 @@ public class Othello {
     }
 
     /**
-     * Main method to run a round of othello
+     * Main method to run a round of othello. <br/>
+     * With "--port &lt;port&gt; [threads]" it instead hosts a game for every connection on the port. See #InputDriver.
      *
      * @param args command line parameters
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 1 && "--port".equals(args[0])) {
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            AnalysisCache cache = new AnalysisCache(DEFAULT_CACHE_BYTES, AnalysisCache.Eviction.CLOCK);
+            try (InputDriver driver = new InputDriver(threads, cache);
+                 ServerSocketChannel server = ServerSocketChannel.open()) {
+                server.bind(new InetSocketAddress(Integer.parseInt(args[1])));
+                driver.serve(server, 8);
+                Thread.currentThread().join();
+            }
+            return;
+        }
         Othello game = new Othello(8);
+        game.cache = new AnalysisCache(DEFAULT_CACHE_BYTES, AnalysisCache.Eviction.LRU);
         try {
             game.playGame();
         } finally {
@@ -44,7 +44,7 @@ class RandomAI implements Player {
                 .get();
         // pretend we are humanbeing
         String player = turn == Othello.BLACK ? "X" : "O";
-        System.out.printf("Player '%s' move: %s%s%n", player, othello.formatRow(move[0]), othello.formatCol(move[1]));
+        othello.out.printf("Player '%s' move: %s%s%n", player, othello.formatRow(move[0]), othello.formatCol(move[1]));
         return move;
     }
 
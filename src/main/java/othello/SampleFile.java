@@ -0,0 +1,135 @@
+package othello;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compact columnar binary file of training samples, written by #TrainingExport and read by #WeightFitter. <br/>
+ * Each sample is an 8x8 position packed as in #Bitboard, seen from the player in turn, with its move number
+ * and the final disc difference of the game from the same player's point of view. <br/>
+ * Layout: int MAGIC, int VERSION, then blocks of up to #BLOCK_SIZE samples. Each block is an int count followed
+ * by the columns: count longs of own pieces, count longs of opponent pieces, count bytes of move numbers and
+ * count bytes of scores. A block with count 0 ends the file.
+ */
+class SampleFile {
+
+    static final int MAGIC = 0x4F54484C;
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 4096;
+
+    /**
+     * A block of samples in columnar form.
+     */
+    static class Block {
+        final long[] own;
+        final long[] opp;
+        final byte[] moveNumber;
+        final byte[] score;
+        int size;
+
+        Block(int capacity) {
+            own = new long[capacity];
+            opp = new long[capacity];
+            moveNumber = new byte[capacity];
+            score = new byte[capacity];
+        }
+
+        /**
+         * Add a sample to the block.
+         * @return true if the block is full.
+         */
+        boolean add(long own, long opp, int moveNumber, int score) {
+            this.own[size] = own;
+            this.opp[size] = opp;
+            this.moveNumber[size] = (byte) moveNumber;
+            this.score[size] = (byte) score;
+            size++;
+            return size == this.own.length;
+        }
+    }
+
+    static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private long samples;
+
+        Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+        }
+
+        void write(Block block) throws IOException {
+            if (block.size == 0) {
+                return;
+            }
+            out.writeInt(block.size);
+            for (int i = 0; i < block.size; i++) {
+                out.writeLong(block.own[i]);
+            }
+            for (int i = 0; i < block.size; i++) {
+                out.writeLong(block.opp[i]);
+            }
+            out.write(block.moveNumber, 0, block.size);
+            out.write(block.score, 0, block.size);
+            samples += block.size;
+        }
+
+        long samples() {
+            return samples;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.writeInt(0);
+            out.close();
+        }
+    }
+
+    static class Reader implements Closeable {
+        private final DataInputStream in;
+
+        Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in));
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("Not a sample file");
+            }
+            int version = this.in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported sample file version: " + version);
+            }
+        }
+
+        /**
+         * Read the next block.
+         * @return The block, or null at the end of the file.
+         */
+        Block next() throws IOException {
+            int size = in.readInt();
+            if (size == 0) {
+                return null;
+            }
+            Block block = new Block(size);
+            for (int i = 0; i < size; i++) {
+                block.own[i] = in.readLong();
+            }
+            for (int i = 0; i < size; i++) {
+                block.opp[i] = in.readLong();
+            }
+            in.readFully(block.moveNumber);
+            in.readFully(block.score);
+            block.size = size;
+            return block;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package othello;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A deep perft or solve job split into work units that run on worker processes. <br/>
+ * The game tree below the root position is expanded #splitDepth plies deep with the #Othello rules, and each
+ * position reached becomes a #WorkUnit: the position plus the remaining depth, serialised as one line of text.
+ * Units are sent to local #SearchWorker JVMs over their standard input and output. Every completed unit is
+ * appended to a checkpoint file, so a job started again with the same checkpoint file only runs the units
+ * that are missing. The unit results are merged back up the split tree: perft counts are summed, solve
+ * scores are combined with negamax.
+ */
+class SearchJob {
+
+    /**
+     * What a job computes.
+     */
+    enum Mode {
+        /**
+         * The number of leaf positions #depth plies deep. A pass counts as a ply, and a finished game
+         * counts as a leaf.
+         */
+        PERFT,
+        /**
+         * The disc difference from the point of view of the player in turn with best play by both players,
+         * searching at most #depth plies. Exact when the depth reaches the end of the game.
+         */
+        SOLVE
+    }
+
+    /**
+     * A position and the depth left to search from it.
+     */
+    static class WorkUnit {
+        final int id;
+        final int player;
+        final int depth;
+        final int[][] board;
+
+        WorkUnit(int id, int player, int depth, int[][] board) {
+            this.id = id;
+            this.player = player;
+            this.depth = depth;
+            this.board = board;
+        }
+
+        /**
+         * Serialise the unit as "id size player depth squares", where squares lists the color of every square
+         * in row-major order.
+         */
+        String toLine() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(id).append(' ').append(board.length).append(' ').append(player).append(' ').append(depth).append(' ');
+            for (int[] row : board) {
+                for (int col : row) {
+                    sb.append(col);
+                }
+            }
+            return sb.toString();
+        }
+
+        static WorkUnit parse(String line) {
+            String[] parts = line.trim().split(" ");
+            int size = Integer.parseInt(parts[1]);
+            String squares = parts[4];
+            if (squares.length() != size * size) {
+                throw new IllegalArgumentException("Bad work unit: " + line);
+            }
+            int[][] board = new int[size][size];
+            for (int i = 0; i < squares.length(); i++) {
+                board[i / size][i % size] = squares.charAt(i) - '0';
+            }
+            return new WorkUnit(Integer.parseInt(parts[0]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), board);
+        }
+    }
+
+    private final Othello rules;
+    private final Mode mode;
+    private final int[][] root;
+    private final int player;
+    private final int depth;
+    private final int splitDepth;
+
+    /**
+     * The number of workers that may die in a row on the same unit before #run fails.
+     */
+    static final int MAX_CRASHES = 3;
+
+    /**
+     * The number of units sent to workers by the last #run, retries included.
+     */
+    final AtomicInteger dispatched = new AtomicInteger();
+
+    /**
+     * @param mode What to compute.
+     * @param root The root position.
+     * @param player The player in turn at the root. BLACK 1 or WHITE 2
+     * @param depth The search depth from the root.
+     * @param splitDepth The depth of the work units in the tree, at most #depth.
+     */
+    SearchJob(Mode mode, int[][] root, int player, int depth, int splitDepth) {
+        if (splitDepth < 0 || splitDepth > depth) {
+            throw new IllegalArgumentException("splitDepth must be between 0 and depth: " + splitDepth);
+        }
+        this.rules = new Othello(root.length);
+        this.mode = mode;
+        this.root = root;
+        this.player = player;
+        this.depth = depth;
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Search a position in the current process. Used by the workers for each unit.
+     * @return The perft count or the solve score, see #Mode.
+     */
+    static long search(Othello rules, Mode mode, int[][] board, int player, int depth) {
+        return mode == Mode.PERFT ? perft(rules, board, player, depth) : solve(rules, board, player, depth, -Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    static long perft(Othello rules, int[][] board, int player, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        Othello.Moves moves = rules.validMoves(player, board);
+        if (moves.count == 0) {
+            if (rules.validMoves(other(player), board).count == 0) {
+                return 1;
+            }
+            // pass
+            return perft(rules, board, other(player), depth - 1);
+        }
+        if (depth == 1) {
+            return moves.count;
+        }
+        long count = 0;
+        for (int row = 0; row < board.length; row++) {
+            for (int col = 0; col < board.length; col++) {
+                if (moves.isValid(row, col)) {
+                    int[][] child = Othello.copyBoard(board);
+                    rules.makeMove(row, col, player, child, moves.directions[row][col]);
+                    count += perft(rules, child, other(player), depth - 1);
+                }
+            }
+        }
+        return count;
+    }
+
+    // negamax with alpha-beta pruning
+    static int solve(Othello rules, int[][] board, int player, int depth, int alpha, int beta) {
+        if (depth == 0) {
+            return Othello.discDifference(board, player);
+        }
+        Othello.Moves moves = rules.validMoves(player, board);
+        if (moves.count == 0) {
+            if (rules.validMoves(other(player), board).count == 0) {
+                return Othello.discDifference(board, player);
+            }
+            // pass
+            return -solve(rules, board, other(player), depth - 1, -beta, -alpha);
+        }
+        int best = -Integer.MAX_VALUE;
+        for (int row = 0; row < board.length; row++) {
+            for (int col = 0; col < board.length; col++) {
+                if (moves.isValid(row, col)) {
+                    int[][] child = Othello.copyBoard(board);
+                    rules.makeMove(row, col, player, child, moves.directions[row][col]);
+                    int score = -solve(rules, child, other(player), depth - 1, -beta, -alpha);
+                    best = Math.max(best, score);
+                    alpha = Math.max(alpha, score);
+                    if (alpha >= beta) {
+                        return best;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Split the tree into work units, in a fixed order.
+     * @return The units.
+     */
+    List<WorkUnit> split() {
+        List<WorkUnit> units = new ArrayList<>();
+        walk(root, player, 0, new int[1], units, null);
+        return units;
+    }
+
+    /**
+     * Merge the results of all the units.
+     * @param results The result of each unit by id.
+     * @return The result of the job.
+     */
+    long merge(Map<Integer, Long> results) {
+        return walk(root, player, 0, new int[1], null, results);
+    }
+
+    /**
+     * Walk the split tree in the same order for #split and #merge. Collects the units at #splitDepth into
+     * #units, or looks up their results in #results and combines them.
+     */
+    private long walk(int[][] board, int player, int ply, int[] nextId, List<WorkUnit> units, Map<Integer, Long> results) {
+        if (ply == splitDepth) {
+            int id = nextId[0]++;
+            if (units != null) {
+                units.add(new WorkUnit(id, player, depth - ply, board));
+                return 0;
+            }
+            Long result = results.get(id);
+            if (result == null) {
+                throw new IllegalStateException("Missing result of work unit " + id);
+            }
+            return result;
+        }
+        Othello.Moves moves = rules.validMoves(player, board);
+        if (moves.count == 0) {
+            if (rules.validMoves(other(player), board).count == 0) {
+                // the game ended before the split depth
+                return mode == Mode.PERFT ? 1 : Othello.discDifference(board, player);
+            }
+            long pass = walk(board, other(player), ply + 1, nextId, units, results);
+            return mode == Mode.PERFT ? pass : -pass;
+        }
+        long combined = mode == Mode.PERFT ? 0 : -Long.MAX_VALUE;
+        for (int row = 0; row < board.length; row++) {
+            for (int col = 0; col < board.length; col++) {
+                if (moves.isValid(row, col)) {
+                    int[][] child = Othello.copyBoard(board);
+                    rules.makeMove(row, col, player, child, moves.directions[row][col]);
+                    long result = walk(child, other(player), ply + 1, nextId, units, results);
+                    combined = mode == Mode.PERFT ? combined + result : Math.max(combined, -result);
+                }
+            }
+        }
+        return combined;
+    }
+
+    /**
+     * Run the job on #workers local worker processes.
+     * @param workers The number of worker JVMs.
+     * @param checkpoint The file completed units are appended to. Units already in the file are not run again.
+     * @return The result of the job.
+     */
+    long run(int workers, File checkpoint) throws IOException, InterruptedException {
+        List<WorkUnit> units = split();
+        String lines = completeLines(checkpoint);
+        Map<Integer, Long> results = Collections.synchronizedMap(readCheckpoint(checkpoint, lines));
+        ConcurrentLinkedQueue<WorkUnit> pending = new ConcurrentLinkedQueue<>();
+        for (WorkUnit unit : units) {
+            if (!results.containsKey(unit.id)) {
+                pending.add(unit);
+            }
+        }
+        dispatched.set(0);
+        // drop a line cut short by a crash, so the next result starts on a fresh line instead of completing it
+        try (RandomAccessFile file = new RandomAccessFile(checkpoint, "rw")) {
+            file.setLength(lines.length());
+        }
+        try (Writer log = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(checkpoint, true), StandardCharsets.US_ASCII))) {
+            if (checkpoint.length() == 0) {
+                log.write(header() + "\n");
+                log.flush();
+            }
+            Thread[] threads = new Thread[workers];
+            IOException[] failure = new IOException[1];
+            for (int i = 0; i < workers; i++) {
+                threads[i] = new Thread(() -> {
+                    try {
+                        dispatch(pending, results, log);
+                    } catch (IOException e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
+                    }
+                }, "othello-search-" + i);
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        return merge(results);
+    }
+
+    // feed units to worker processes until there are none left, a worker that dies is replaced
+    private void dispatch(ConcurrentLinkedQueue<WorkUnit> pending, Map<Integer, Long> results, Writer log) throws IOException {
+        WorkUnit unit = pending.poll();
+        // the number of workers that died in a row on #unit
+        int crashes = 0;
+        while (unit != null) {
+            Process process = startWorker();
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+                 Writer out = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII)) {
+                while (unit != null) {
+                    dispatched.incrementAndGet();
+                    String line;
+                    try {
+                        out.write(mode + " " + unit.toLine() + "\n");
+                        out.flush();
+                        line = in.readLine();
+                    } catch (IOException e) {
+                        line = null;
+                    }
+                    if (line == null) {
+                        // the worker died, retry the unit on a new worker unless it keeps killing them
+                        int status = process.waitFor();
+                        if (++crashes >= MAX_CRASHES) {
+                            throw new IOException("Worker exited with " + status + " on unit " + unit.id + " " + crashes + " times");
+                        }
+                        break;
+                    }
+                    String[] parts = line.split(" ");
+                    if (Integer.parseInt(parts[0]) != unit.id) {
+                        throw new IOException("Unexpected worker output: " + line);
+                    }
+                    long result = Long.parseLong(parts[1]);
+                    synchronized (log) {
+                        log.write(unit.id + " " + result + "\n");
+                        log.flush();
+                    }
+                    results.put(unit.id, result);
+                    crashes = 0;
+                    unit = pending.poll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                process.destroy();
+            }
+        }
+    }
+
+    private Process startWorker() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath;
+        try {
+            classPath = new File(SearchWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        return new ProcessBuilder(java, "-cp", classPath, SearchWorker.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    // identifies the job in the checkpoint file, so the results of another job are never merged
+    private String header() {
+        return "job " + mode + " " + depth + " " + splitDepth + " " + new WorkUnit(0, player, depth, root).toLine();
+    }
+
+    // the content of the checkpoint up to its last newline, every line after it was cut short by a crash
+    private static String completeLines(File checkpoint) throws IOException {
+        if (!checkpoint.exists()) {
+            return "";
+        }
+        String content = new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.US_ASCII);
+        return content.substring(0, content.lastIndexOf('\n') + 1);
+    }
+
+    private Map<Integer, Long> readCheckpoint(File checkpoint, String lines) throws IOException {
+        Map<Integer, Long> results = new HashMap<>();
+        if (lines.isEmpty()) {
+            return results;
+        }
+        try (BufferedReader in = new BufferedReader(new StringReader(lines))) {
+            String header = in.readLine();
+            if (!header().equals(header)) {
+                throw new IOException("Checkpoint " + checkpoint + " belongs to another job: " + header);
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length == 2) {
+                    try {
+                        results.put(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+                    } catch (NumberFormatException e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    static int other(int player) {
+        return player == Othello.BLACK ? Othello.WHITE : Othello.BLACK;
+    }
+
+    /**
+     * Run a job. Usage:
+     * <pre>
+     * SearchJob (perft|solve) --depth &lt;n&gt; --split &lt;n&gt; --checkpoint &lt;file&gt;
+     *           [--size &lt;n&gt;] [--moves "3d 3c ..."] [--workers &lt;n&gt;]
+     * </pre>
+     * The root position is the start position of the board size, followed by the given moves.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: SearchJob (perft|solve) --depth <n> --split <n> --checkpoint <file> "
+                    + "[--size <n>] [--moves \"3d 3c ...\"] [--workers <n>]");
+            return;
+        }
+        Mode mode = Mode.valueOf(args[0].toUpperCase());
+        int size = 8;
+        int depth = 0;
+        int split = 0;
+        int workers = Runtime.getRuntime().availableProcessors();
+        String moves = "";
+        String checkpoint = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--size": size = Integer.parseInt(args[i + 1]); break;
+                case "--depth": depth = Integer.parseInt(args[i + 1]); break;
+                case "--split": split = Integer.parseInt(args[i + 1]); break;
+                case "--workers": workers = Integer.parseInt(args[i + 1]); break;
+                case "--moves": moves = args[i + 1]; break;
+                case "--checkpoint": checkpoint = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (checkpoint == null) {
+            throw new IllegalArgumentException("--checkpoint is required");
+        }
+        Othello rules = new Othello(size);
+        int[][] board = rules.createBoard(size);
+        int player = Othello.BLACK;
+        for (String move : moves.trim().split("\\s+")) {
+            if (move.isEmpty()) {
+                continue;
+            }
+            Othello.Moves valid = rules.validMoves(player, board);
+            // pass
+            if (valid.count == 0) {
+                player = other(player);
+                valid = rules.validMoves(player, board);
+            }
+            int[] xy = rules.parseUserInput(move);
+            if (!valid.isValid(xy[0], xy[1])) {
+                throw new IllegalArgumentException("Invalid move: " + move);
+            }
+            rules.makeMove(xy[0], xy[1], player, board, valid.directions[xy[0]][xy[1]]);
+            player = other(player);
+        }
+        SearchJob job = new SearchJob(mode, board, player, depth, split);
+        long start = System.nanoTime();
+        long result = job.run(workers, new File(checkpoint));
+        System.out.printf("%s depth %d: %d (%d units run, %.1f s)%n", mode, depth, result, job.dispatched.get(),
+                (System.nanoTime() - start) / 1e9);
+    }
+}
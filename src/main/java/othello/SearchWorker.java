@@ -0,0 +1,32 @@
+package othello;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Worker process of a #SearchJob. Reads one work unit per line from standard input, as "mode unit" where unit
+ * is #SearchJob.WorkUnit.toLine, and writes "id result" to standard output for each of them.
+ */
+class SearchWorker {
+
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        PrintStream out = System.out;
+        Othello rules = null;
+        String line;
+        while ((line = in.readLine()) != null) {
+            int space = line.indexOf(' ');
+            SearchJob.Mode mode = SearchJob.Mode.valueOf(line.substring(0, space));
+            SearchJob.WorkUnit unit = SearchJob.WorkUnit.parse(line.substring(space + 1));
+            if (rules == null || rules.board.length != unit.board.length) {
+                rules = new Othello(unit.board.length);
+            }
+            long result = SearchJob.search(rules, mode, unit.board, unit.player, unit.depth);
+            out.println(unit.id + " " + result);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package othello;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports (position, final score) training samples from played games into a #SampleFile. <br/>
+ * Games come either from random self-play or from an archive of game records, one per line as written by
+ * #Othello.formatHistory. Every game is replayed with #Othello.makeMove, each position before a move becomes
+ * a sample labelled with the final score, and symmetric duplicates are dropped. Records that are not legal,
+ * finished games are rejected. Games are replayed on all cores and the samples stream
+ * to the file in blocks, so memory stays bounded whatever the number of games: a few blocks per worker
+ * plus the dedupe set, which is cleared when it reaches #dedupeCapacity entries.
+ */
+class TrainingExport {
+
+    private final int threads;
+    /**
+     * Maximum number of samples kept for each move number.
+     */
+    int perMoveLimit = Integer.MAX_VALUE;
+    /**
+     * Maximum number of positions remembered for dedupe.
+     */
+    int dedupeCapacity = 1 << 20;
+    /**
+     * If not null, self-play games are appended to it as game records.
+     */
+    Writer gameArchive;
+
+    // discards what the replayed games print
+    private static final PrintStream QUIET = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+    });
+
+    private final Set<Position> seen = ConcurrentHashMap.newKeySet();
+    private final AtomicIntegerArray perMove = new AtomicIntegerArray(Bitboard.SIZE * Bitboard.SIZE);
+    final AtomicLong games = new AtomicLong();
+    final AtomicLong rejected = new AtomicLong();
+    final AtomicLong duplicates = new AtomicLong();
+
+    /**
+     * A source of game records shared by the workers.
+     */
+    interface GameSource {
+        /**
+         * @return The next game record, or null if there are no more games.
+         */
+        String next() throws IOException;
+    }
+
+    // a canonical position used as dedupe key
+    private static class Position {
+        final long own;
+        final long opp;
+
+        Position(long own, long opp) {
+            this.own = own;
+            this.opp = opp;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Position && ((Position) o).own == own && ((Position) o).opp == opp;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(own * 31 + opp);
+        }
+    }
+
+    TrainingExport(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Export #count random self-play games.
+     */
+    void selfPlay(int count, SampleFile.Writer out) throws IOException, InterruptedException {
+        AtomicInteger remaining = new AtomicInteger(count);
+        run(() -> {
+            if (remaining.getAndDecrement() <= 0) {
+                return null;
+            }
+            Othello othello = new Othello(Bitboard.SIZE);
+            othello.out = QUIET;
+            othello.playGame(((b, board) -> RandomAI.getRandomMove(othello, b, board)), ((w, board) -> RandomAI.getRandomMove(othello, w, board)));
+            String record = othello.formatHistory(othello.history);
+            if (gameArchive != null) {
+                synchronized (gameArchive) {
+                    gameArchive.write(record);
+                    gameArchive.write(System.lineSeparator());
+                }
+            }
+            return record;
+        }, out);
+    }
+
+    /**
+     * Export the archived games, one game record per line.
+     */
+    void archive(BufferedReader in, SampleFile.Writer out) throws IOException, InterruptedException {
+        run(() -> {
+            synchronized (in) {
+                return in.readLine();
+            }
+        }, out);
+    }
+
+    /**
+     * Replay the games from #source on #threads workers and write their samples to #out.
+     */
+    void run(GameSource source, SampleFile.Writer out) throws IOException, InterruptedException {
+        BlockingQueue<SampleFile.Block> blocks = new ArrayBlockingQueue<>(threads * 2);
+        // an empty block is put by each worker when it is done
+        SampleFile.Block done = new SampleFile.Block(0);
+        Thread[] workers = new Thread[threads];
+        Throwable[] failure = new Throwable[1];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    work(source, blocks);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                } finally {
+                    try {
+                        blocks.put(done);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "othello-export-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        try {
+            for (int running = threads; running > 0; ) {
+                SampleFile.Block block = blocks.take();
+                if (block == done) {
+                    running--;
+                } else {
+                    out.write(block);
+                }
+            }
+        } catch (Throwable e) {
+            // the workers would block forever on the full queue
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            throw e;
+        }
+        synchronized (failure) {
+            if (failure[0] instanceof IOException) {
+                throw (IOException) failure[0];
+            } else if (failure[0] instanceof RuntimeException) {
+                throw (RuntimeException) failure[0];
+            } else if (failure[0] != null) {
+                throw (Error) failure[0];
+            }
+        }
+    }
+
+    private void work(GameSource source, BlockingQueue<SampleFile.Block> blocks) throws IOException, InterruptedException {
+        Othello othello = new Othello(Bitboard.SIZE);
+        othello.out = QUIET;
+        SampleFile.Block block = new SampleFile.Block(SampleFile.BLOCK_SIZE);
+        SampleFile.Block game = new SampleFile.Block(perMove.length());
+        String record;
+        while ((record = source.next()) != null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            game.size = 0;
+            if (!replay(othello, record, game)) {
+                rejected.incrementAndGet();
+                continue;
+            }
+            games.incrementAndGet();
+            for (int i = 0; i < game.size; i++) {
+                if (block.add(game.own[i], game.opp[i], game.moveNumber[i], game.score[i])) {
+                    blocks.put(block);
+                    block = new SampleFile.Block(SampleFile.BLOCK_SIZE);
+                }
+            }
+        }
+        if (block.size > 0) {
+            blocks.put(block);
+        }
+    }
+
+    /**
+     * Replay one game record and add its sampled positions to #samples.
+     * @param othello The game used for the rules.
+     * @param record The game record.
+     * @param samples Receives the samples, it must have room for a full game.
+     * @return false if the record is not a legal game, or if the game is not over at its last move.
+     */
+    boolean replay(Othello othello, String record, SampleFile.Block samples) {
+        String[] moves = record.trim().split("\\s+");
+        if (moves.length > perMove.length() || moves[0].isEmpty()) {
+            return false;
+        }
+        int[][] board = othello.createBoard(Bitboard.SIZE);
+        long[] own = new long[moves.length];
+        long[] opp = new long[moves.length];
+        int[] turns = new int[moves.length];
+        int turn = Othello.BLACK;
+        for (int i = 0; i < moves.length; i++) {
+            Othello.Moves valid = othello.validMoves(turn, board);
+            // pass
+            if (valid.count == 0) {
+                turn = other(turn);
+                valid = othello.validMoves(turn, board);
+            }
+            int[] xy = othello.parseUserInput(moves[i]);
+            if (!valid.isValid(xy[0], xy[1])) {
+                return false;
+            }
+            own[i] = Bitboard.pack(board, turn);
+            opp[i] = Bitboard.pack(board, other(turn));
+            turns[i] = turn;
+            othello.makeMove(xy[0], xy[1], turn, board, valid.directions[xy[0]][xy[1]]);
+            turn = other(turn);
+        }
+        // the final score of a truncated or abandoned game would be a mid-game disc difference
+        if (othello.validMoves(turn, board).count > 0 || othello.validMoves(other(turn), board).count > 0) {
+            return false;
+        }
+        int score = Long.bitCount(Bitboard.pack(board, Othello.BLACK)) - Long.bitCount(Bitboard.pack(board, Othello.WHITE));
+        for (int i = 0; i < moves.length; i++) {
+            int symmetry = Bitboard.canonicalSymmetry(own[i], opp[i]);
+            long o = Bitboard.symmetry(own[i], symmetry);
+            long p = Bitboard.symmetry(opp[i], symmetry);
+            if (perMove.get(i) >= perMoveLimit) {
+                continue;
+            }
+            if (seen.size() >= dedupeCapacity) {
+                seen.clear();
+            }
+            if (!seen.add(new Position(o, p))) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+            if (perMove.incrementAndGet(i) > perMoveLimit) {
+                continue;
+            }
+            samples.add(o, p, i, turns[i] == Othello.BLACK ? score : -score);
+        }
+        return true;
+    }
+
+    private static int other(int player) {
+        return player == Othello.BLACK ? Othello.WHITE : Othello.BLACK;
+    }
+
+    /**
+     * Run the export. Usage:
+     * <pre>
+     * TrainingExport (--self-play &lt;games&gt; | --games &lt;archive&gt;) --out &lt;file&gt;
+     *                [--save-games &lt;archive&gt;] [--threads &lt;n&gt;] [--per-move &lt;n&gt;]
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int selfPlay = 0;
+        String games = null;
+        String out = null;
+        String saveGames = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int perMove = Integer.MAX_VALUE;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--self-play": selfPlay = Integer.parseInt(args[i + 1]); break;
+                case "--games": games = args[i + 1]; break;
+                case "--out": out = args[i + 1]; break;
+                case "--save-games": saveGames = args[i + 1]; break;
+                case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+                case "--per-move": perMove = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (out == null || (selfPlay == 0) == (games == null)) {
+            System.out.println("Usage: TrainingExport (--self-play <games> | --games <archive>) --out <file> "
+                    + "[--save-games <archive>] [--threads <n>] [--per-move <n>]");
+            return;
+        }
+        TrainingExport export = new TrainingExport(threads);
+        export.perMoveLimit = perMove;
+        try (SampleFile.Writer writer = new SampleFile.Writer(new FileOutputStream(out))) {
+            if (games != null) {
+                try (BufferedReader in = new BufferedReader(new FileReader(games))) {
+                    export.archive(in, writer);
+                }
+            } else {
+                export.gameArchive = saveGames == null ? null : new FileWriter(saveGames);
+                try {
+                    export.selfPlay(selfPlay, writer);
+                } finally {
+                    if (export.gameArchive != null) {
+                        export.gameArchive.close();
+                    }
+                }
+            }
+            System.out.printf("%d games, %d rejected, %d samples, %d duplicates%n",
+                    export.games.get(), export.rejected.get(), writer.samples(), export.duplicates.get());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package othello;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Least-squares fit of square weights for a linear evaluator, read directly from a #SampleFile. <br/>
+ * The squares of the 8x8 board are grouped into the 10 classes that are equal under the board symmetries
+ * (corners, edges next to corners, ...). The features of a position are, for each class, the number of own
+ * pieces minus the number of opponent pieces in the class, plus a constant bias. The fitter accumulates the
+ * normal equations while streaming the samples, so memory does not depend on the number of samples.
+ */
+class WeightFitter {
+
+    static final int CLASSES = 10;
+
+    /**
+     * The squares of each class. The class of a square is given by its distance to the nearest two edges.
+     */
+    static final long[] CLASS_MASKS = new long[CLASSES];
+
+    static {
+        for (int row = 0; row < Bitboard.SIZE; row++) {
+            for (int col = 0; col < Bitboard.SIZE; col++) {
+                CLASS_MASKS[squareClass(row, col)] |= 1L << (row * Bitboard.SIZE + col);
+            }
+        }
+    }
+
+    // features plus bias
+    private final double[][] xtx = new double[CLASSES + 1][CLASSES + 1];
+    private final double[] xty = new double[CLASSES + 1];
+    private long samples;
+
+    static int squareClass(int row, int col) {
+        int r = Math.min(row, Bitboard.SIZE - 1 - row);
+        int c = Math.min(col, Bitboard.SIZE - 1 - col);
+        int a = Math.min(r, c);
+        int b = Math.max(r, c);
+        // index in the triangle 0 <= a <= b <= 3
+        return b * (b + 1) / 2 + a;
+    }
+
+    static double[] features(long own, long opp) {
+        double[] x = new double[CLASSES + 1];
+        for (int c = 0; c < CLASSES; c++) {
+            x[c] = Long.bitCount(own & CLASS_MASKS[c]) - Long.bitCount(opp & CLASS_MASKS[c]);
+        }
+        x[CLASSES] = 1;
+        return x;
+    }
+
+    void add(long own, long opp, double score) {
+        double[] x = features(own, opp);
+        for (int i = 0; i < x.length; i++) {
+            for (int j = 0; j < x.length; j++) {
+                xtx[i][j] += x[i] * x[j];
+            }
+            xty[i] += x[i] * score;
+        }
+        samples++;
+    }
+
+    void addAll(SampleFile.Reader in) throws IOException {
+        SampleFile.Block block;
+        while ((block = in.next()) != null) {
+            for (int i = 0; i < block.size; i++) {
+                add(block.own[i], block.opp[i], block.score[i]);
+            }
+        }
+    }
+
+    long samples() {
+        return samples;
+    }
+
+    /**
+     * Solve the normal equations.
+     * @param ridge Added to the diagonal, keeps the system solvable when a class never varies.
+     * @return The weight of each class followed by the bias.
+     */
+    double[] solve(double ridge) {
+        int n = xty.length;
+        double[][] a = new double[n][n + 1];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(xtx[i], 0, a[i], 0, n);
+            a[i][i] += ridge;
+            a[i][n] = xty[i];
+        }
+        // Gaussian elimination with partial pivoting
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            double[] tmp = a[col];
+            a[col] = a[pivot];
+            a[pivot] = tmp;
+            if (a[col][col] == 0) {
+                throw new ArithmeticException("Singular system, try a larger ridge");
+            }
+            for (int row = col + 1; row < n; row++) {
+                double f = a[row][col] / a[col][col];
+                for (int k = col; k <= n; k++) {
+                    a[row][k] -= f * a[col][k];
+                }
+            }
+        }
+        double[] w = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = a[row][n];
+            for (int k = row + 1; k < n; k++) {
+                sum -= a[row][k] * w[k];
+            }
+            w[row] = sum / a[row][row];
+        }
+        return w;
+    }
+
+    /**
+     * Fit the weights of a sample file and print them as a board. Usage: WeightFitter &lt;file&gt; [ridge]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: WeightFitter <file> [ridge]");
+            return;
+        }
+        WeightFitter fitter = new WeightFitter();
+        try (SampleFile.Reader in = new SampleFile.Reader(new FileInputStream(args[0]))) {
+            fitter.addAll(in);
+        }
+        double[] w = fitter.solve(args.length > 1 ? Double.parseDouble(args[1]) : 1e-6);
+        System.out.printf("%d samples, bias %.3f%n", fitter.samples(), w[CLASSES]);
+        for (int row = 0; row < Bitboard.SIZE; row++) {
+            for (int col = 0; col < Bitboard.SIZE; col++) {
+                System.out.printf("%8.3f", w[squareClass(row, col)]);
+            }
+            System.out.println();
+        }
+    }
+}
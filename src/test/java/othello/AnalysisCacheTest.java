@@ -0,0 +1,142 @@
+package othello;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class AnalysisCacheTest {
+
+    @Test
+    public void testGet() {
+        Othello othello = new Othello(8);
+        AnalysisCache cache = new AnalysisCache(1 << 20, AnalysisCache.Eviction.LRU);
+        AnalysisCache.Analysis analysis = cache.get(Othello.BLACK, othello.board, othello);
+        assertEquals(4, analysis.moves.count);
+        assertEquals(0, analysis.evaluation());
+        int[] bestMove = analysis.bestMove(othello);
+        assertNotNull(bestMove);
+        assertTrue(analysis.moves.isValid(bestMove[0], bestMove[1]));
+        assertSame(bestMove, analysis.bestMove(othello));
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+        // same position in another board
+        assertSame(analysis, cache.get(Othello.BLACK, othello.createBoard(8), othello));
+        assertEquals(1, cache.hits());
+        assertEquals(0.5, cache.hitRatio(), 1e-9);
+        // the player in turn is part of the key
+        assertNotSame(analysis, cache.get(Othello.WHITE, othello.board, othello));
+        assertEquals(2, cache.size());
+        assertEquals(2 * AnalysisCache.weigh(8), cache.bytes());
+    }
+
+    @Test
+    public void testUndo() {
+        Othello othello = new Othello(8);
+        othello.out = new PrintStream(new ByteArrayOutputStream());
+        othello.cache = new AnalysisCache(1 << 20, AnalysisCache.Eviction.CLOCK);
+        othello.startGame();
+        othello.playInput("3d");
+        long misses = othello.cache.misses();
+        // the position before 3d is answered from the cache
+        othello.playInput("u");
+        assertEquals(misses, othello.cache.misses());
+        assertTrue(othello.cache.hits() > 0);
+        assertTrue(Arrays.deepEquals(othello.createBoard(8), othello.board));
+    }
+
+    @Test
+    public void testEviction() {
+        List<int[][]> positions = RandomGames.positions(5);
+        Othello othello = new Othello(8);
+        for (AnalysisCache.Eviction eviction : AnalysisCache.Eviction.values()) {
+            long maxBytes = 64 * AnalysisCache.weigh(8);
+            AnalysisCache cache = new AnalysisCache(maxBytes, eviction);
+            for (int[][] board : positions) {
+                for (int player = Othello.BLACK; player <= Othello.WHITE; player++) {
+                    AnalysisCache.Analysis analysis = cache.get(player, board, othello);
+                    assertEquals(othello.validMoves(player, board).count, analysis.moves.count);
+                    assertTrue(cache.bytes() <= maxBytes);
+                }
+            }
+            assertTrue(eviction + " should evict", cache.evictions() > 0);
+            assertEquals(cache.size() * AnalysisCache.weigh(8), cache.bytes());
+
+            // a budget smaller than one entry per segment caches nothing
+            cache = new AnalysisCache(15 * AnalysisCache.weigh(8), eviction);
+            for (int[][] board : positions) {
+                assertEquals(othello.validMoves(Othello.BLACK, board).count, cache.get(Othello.BLACK, board, othello).moves.count);
+            }
+            assertEquals(0, cache.size());
+            assertEquals(0, cache.bytes());
+            assertEquals(0, cache.evictions());
+        }
+    }
+
+    @Test
+    public void testRecentEntries() {
+        List<int[][]> positions = RandomGames.positions(5);
+        Othello othello = new Othello(8);
+        // distinct positions only, so the first visit of each is a miss
+        Set<String> seen = new HashSet<>();
+        List<int[][]> distinct = new ArrayList<>();
+        for (int[][] board : positions) {
+            if (seen.add(Arrays.deepToString(board))) {
+                distinct.add(board);
+            }
+        }
+        for (AnalysisCache.Eviction eviction : AnalysisCache.Eviction.values()) {
+            AnalysisCache cache = new AnalysisCache(128 * AnalysisCache.weigh(8), eviction);
+            // every position is visited again 16 positions later, far fewer than the cache holds
+            long revisits = 0;
+            long hits = 0;
+            for (int i = 0; i < distinct.size(); i++) {
+                cache.get(Othello.BLACK, distinct.get(i), othello);
+                if (i >= 16) {
+                    long before = cache.hits();
+                    cache.get(Othello.BLACK, distinct.get(i - 16), othello);
+                    hits += cache.hits() - before;
+                    revisits++;
+                }
+            }
+            assertTrue(eviction + " should evict", cache.evictions() > 0);
+            // CLOCK only approximates LRU, entries used again keep their flag for one more sweep of the hand
+            assertTrue(eviction + " answered " + hits + " of " + revisits + " revisits", hits >= 0.8 * revisits);
+        }
+    }
+
+    @Test
+    public void testConcurrentGet() throws Exception {
+        List<int[][]> positions = RandomGames.positions(5);
+        Othello othello = new Othello(8);
+        AnalysisCache cache = new AnalysisCache(32 * AnalysisCache.weigh(8), AnalysisCache.Eviction.CLOCK);
+        AtomicBoolean failed = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                Othello rules = new Othello(8);
+                for (int round = 0; round < 3; round++) {
+                    for (int[][] board : positions) {
+                        if (cache.get(Othello.BLACK, board, rules).moves.count != othello.validMoves(Othello.BLACK, board).count) {
+                            failed.set(true);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed.get());
+        assertEquals(threads.length * 3 * positions.size(), cache.hits() + cache.misses());
+    }
+}
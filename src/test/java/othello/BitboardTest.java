@@ -0,0 +1,103 @@
+package othello;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class BitboardTest {
+
+    @Test
+    public void testMoves() {
+        Othello othello = new Othello(8);
+        long own = Bitboard.pack(othello.board, Othello.BLACK);
+        long opp = Bitboard.pack(othello.board, Othello.WHITE);
+        // 3d, 4c, 5f, 6e
+        long expected = 1L << (2 * 8 + 3) | 1L << (3 * 8 + 2) | 1L << (4 * 8 + 5) | 1L << (5 * 8 + 4);
+        assertEquals(expected, Bitboard.moves(own, opp));
+        // 3d flips 4d
+        assertEquals(1L << (3 * 8 + 3), Bitboard.flips(own, opp, 1L << (2 * 8 + 3)));
+    }
+
+    @Test
+    public void testAgainstOthello() {
+        RandomGames games = new RandomGames(5);
+        Othello othello = new Othello(8);
+        for (int p = 0; p < games.positions.size(); p++) {
+            int[][] board = games.positions.get(p);
+            int turn = games.turn(p);
+            long own = Bitboard.pack(board, turn);
+            long opp = Bitboard.pack(board, turn == Othello.BLACK ? Othello.WHITE : Othello.BLACK);
+            long moves = Bitboard.moves(own, opp);
+            for (int row = 0; row < 8; row++) {
+                for (int col = 0; col < 8; col++) {
+                    long move = 1L << (row * 8 + col);
+                    boolean valid = othello.isValid(row, col, turn, board);
+                    assertEquals(valid, (moves & move) != 0);
+                    if (valid) {
+                        int[][] copy = othello.unpackBoard(othello.packBoard(board), 8);
+                        othello.makeMove(row, col, turn, copy);
+                        long flipped = Bitboard.pack(copy, turn) & ~own & ~move;
+                        assertEquals(flipped, Bitboard.flips(own, opp, move));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        RandomGames games = new RandomGames(5);
+        int n = games.positions.size();
+        long[] own = new long[n];
+        long[] opp = new long[n];
+        long[] move = new long[n];
+        for (int p = 0; p < n; p++) {
+            int turn = games.turn(p);
+            own[p] = Bitboard.pack(games.positions.get(p), turn);
+            opp[p] = Bitboard.pack(games.positions.get(p), turn == Othello.BLACK ? Othello.WHITE : Othello.BLACK);
+        }
+        long[] scalar = new long[n];
+        long[] batch = new long[n];
+        Bitboard.SCALAR.moves(own, opp, scalar, n);
+        Bitboard.batch().moves(own, opp, batch, n);
+        assertArrayEquals(scalar, batch);
+        for (int p = 0; p < n; p++) {
+            move[p] = Long.lowestOneBit(scalar[p]);
+        }
+        Bitboard.SCALAR.flips(own, opp, move, scalar, n);
+        Bitboard.batch().flips(own, opp, move, batch, n);
+        assertArrayEquals(scalar, batch);
+    }
+
+    @Test
+    public void testSymmetry() {
+        for (int[][] board : RandomGames.positions(1)) {
+            long black = Bitboard.pack(board, Othello.BLACK);
+            int[][] mirrored = new int[8][8];
+            int[][] flipped = new int[8][8];
+            int[][] transposed = new int[8][8];
+            for (int row = 0; row < 8; row++) {
+                for (int col = 0; col < 8; col++) {
+                    mirrored[row][7 - col] = board[row][col];
+                    flipped[7 - row][col] = board[row][col];
+                    transposed[col][row] = board[row][col];
+                }
+            }
+            assertEquals(Bitboard.pack(mirrored, Othello.BLACK), Bitboard.mirrorHorizontal(black));
+            assertEquals(Bitboard.pack(flipped, Othello.BLACK), Bitboard.flipVertical(black));
+            assertEquals(Bitboard.pack(transposed, Othello.BLACK), Bitboard.flipDiagonal(black));
+            // all symmetric positions share the same canonical form
+            long white = Bitboard.pack(board, Othello.WHITE);
+            int c = Bitboard.canonicalSymmetry(black, white);
+            for (int i = 0; i < 8; i++) {
+                long b = Bitboard.symmetry(black, i);
+                long w = Bitboard.symmetry(white, i);
+                int ci = Bitboard.canonicalSymmetry(b, w);
+                assertEquals(Bitboard.symmetry(black, c), Bitboard.symmetry(b, ci));
+                assertEquals(Bitboard.symmetry(white, c), Bitboard.symmetry(w, ci));
+            }
+        }
+    }
+}
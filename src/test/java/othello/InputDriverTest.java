@@ -0,0 +1,221 @@
+package othello;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InputDriverTest {
+
+    private InputDriver driver;
+
+    @Before
+    public void setUp() throws IOException {
+        this.driver = new InputDriver(2);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.driver.close();
+    }
+
+    @Test
+    public void testSocketGames() throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        driver.serve(server, 8);
+        // many games over local sockets, played in turns on the same client thread
+        SocketChannel[] clients = new SocketChannel[20];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = SocketChannel.open(server.getLocalAddress());
+            assertTrue(readUntil(clients[i], "Player 'X' move: ").contains("4 ---OX---"));
+        }
+        for (SocketChannel client : clients) {
+            send(client, "3d\n");
+        }
+        for (SocketChannel client : clients) {
+            String s = readUntil(client, "Player 'O' move: ");
+            assertTrue(s, s.contains("3 ---X----"));
+            assertTrue(s, s.contains("4 ---XX---"));
+        }
+        assertEquals(clients.length, driver.games());
+        // undo and an invalid move
+        send(clients[0], "u 1a\n");
+        String s = readUntil(clients[0], "Invalid move. Please try again." + System.lineSeparator() + "Player 'X' move: ");
+        assertTrue(s, s.contains("4 ---OX---"));
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void testPipeGame() throws Exception {
+        Pipe input = Pipe.open();
+        Pipe output = Pipe.open();
+        driver.register(input.source(), output.sink(), 8);
+        output.source().configureBlocking(true);
+        readUntil(output.source(), "Player 'X' move: ");
+        // the moves may be split across reads
+        send(input.sink(), "3");
+        send(input.sink(), "d 3c\n");
+        String s = readUntil(output.source(), "Player 'X' move: ");
+        assertTrue(s, s.contains("3 --OX----"));
+        // a full game ends and closes the channels
+        Othello reference = new Othello(8);
+        reference.out = new PrintStream(new ByteArrayOutputStream());
+        RandomGames.play(reference);
+        StringBuilder moves = new StringBuilder("u u");
+        for (int i = 0; i < reference.countMoves(reference.history); i++) {
+            int[] record = reference.history[i];
+            moves.append(' ').append(reference.formatRow(record[0])).append(reference.formatCol(record[1]));
+        }
+        send(input.sink(), moves.append('\n').toString());
+        s = readUntil(output.source(), null);
+        assertTrue(s, s.contains("No further moves available"));
+        assertEquals(0, driver.games());
+    }
+
+    @Test
+    public void testRandomAIGame() throws Exception {
+        Pipe input = Pipe.open();
+        Pipe output = Pipe.open();
+        driver.register(input.source(), output.sink(), 8, null, RandomAI::new);
+        output.source().configureBlocking(true);
+        readUntil(output.source(), "Player 'X' move: ");
+        // white answers on its own
+        send(input.sink(), "3d\n");
+        String s = readUntil(output.source(), "Player 'X' move: ");
+        assertTrue(s, s.contains("Player 'O' move: "));
+        // undo takes back the move of the computer, which moves again
+        send(input.sink(), "u\n");
+        s = readUntil(output.source(), "Player 'X' move: ");
+        assertTrue(s, s.contains("Player 'O' move: "));
+        input.sink().close();
+        readUntil(output.source(), null);
+        assertEquals(0, driver.games());
+    }
+
+    @Test
+    public void testEndOfInput() throws Exception {
+        try (InputDriver single = new InputDriver(1)) {
+            // the game is closed while its output is waiting to be written
+            Pipe input = Pipe.open();
+            Pipe output = Pipe.open();
+            single.register(input.source(), output.sink(), 8);
+            StringBuilder invalid = new StringBuilder();
+            for (int i = 0; i < 2000; i++) {
+                invalid.append("1a ");
+            }
+            send(input.sink(), invalid.append('\n').toString());
+            input.sink().close();
+            output.source().configureBlocking(true);
+            readUntil(output.source(), null);
+            // the selector thread keeps serving new games
+            Pipe input2 = Pipe.open();
+            Pipe output2 = Pipe.open();
+            single.register(input2.source(), output2.sink(), 8);
+            output2.source().configureBlocking(true);
+            readUntil(output2.source(), "Player 'X' move: ");
+            send(input2.sink(), "3d\n");
+            String s = readUntil(output2.source(), "Player 'O' move: ");
+            assertTrue(s, s.contains("3 ---X----"));
+        }
+    }
+
+    @Test
+    public void testSlowReader() throws Exception {
+        try (InputDriver single = new InputDriver(1)) {
+            Pipe input = Pipe.open();
+            Pipe output = Pipe.open();
+            single.register(input.source(), output.sink(), 8);
+            // the client keeps sending and never reads the boards printed for it
+            StringBuilder undos = new StringBuilder();
+            for (int i = 0; i < 50000; i++) {
+                undos.append("u ");
+            }
+            Thread sender = new Thread(() -> {
+                try {
+                    send(input.sink(), undos.toString());
+                    input.sink().close();
+                } catch (IOException e) {
+                    // the test fails on the missing output
+                }
+            });
+            sender.start();
+            // the game stops reading, so the sender blocks on the full pipe
+            sender.join(1000);
+            assertTrue(sender.isAlive());
+            // the other games of the selector thread are still served
+            Pipe input2 = Pipe.open();
+            Pipe output2 = Pipe.open();
+            single.register(input2.source(), output2.sink(), 8);
+            output2.source().configureBlocking(true);
+            readUntil(output2.source(), "Player 'X' move: ");
+            send(input2.sink(), "3d\n");
+            assertTrue(readUntil(output2.source(), "Player 'O' move: ").contains("3 ---X----"));
+            // every move is played once the client reads the output
+            output.source().configureBlocking(true);
+            String s = readUntil(output.source(), null);
+            sender.join();
+            int warnings = 0;
+            for (int i = s.indexOf("Warning"); i >= 0; i = s.indexOf("Warning", i + 1)) {
+                warnings++;
+            }
+            assertEquals(50000, warnings);
+        }
+    }
+
+    @Test
+    public void testLongToken() throws Exception {
+        Pipe input = Pipe.open();
+        Pipe output = Pipe.open();
+        driver.register(input.source(), output.sink(), 8);
+        output.source().configureBlocking(true);
+        readUntil(output.source(), "Player 'X' move: ");
+        // a token without whitespace is cut short instead of growing without limit
+        StringBuilder token = new StringBuilder("3d");
+        for (int i = 0; i < 100000; i++) {
+            token.append('x');
+        }
+        send(input.sink(), token.append('\n').toString());
+        String s = readUntil(output.source(), "Player 'O' move: ");
+        assertTrue(s, s.contains("3 ---X----"));
+        input.sink().close();
+    }
+
+    private void send(WritableByteChannel channel, String s) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // read from a blocking channel until the output ends with #end, or until end of stream if #end is null
+    private String readUntil(ReadableByteChannel channel, String end) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        while (end == null || !sb.toString().endsWith(end)) {
+            buffer.clear();
+            if (channel.read(buffer) < 0) {
+                assertNull("end of stream before '" + end + "': " + sb, end);
+                break;
+            }
+            sb.append(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII));
+        }
+        return sb.toString();
+    }
+}
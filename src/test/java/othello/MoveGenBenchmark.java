@@ -0,0 +1,62 @@
+package othello;
+
+import java.util.List;
+
+/**
+ * Compares move generation throughput, in boards per second, of #Othello.hasValidMoves against the scalar
+ * and the batch #Bitboard paths on the same corpus of positions from random games. Run with:
+ * <pre>
+ * mvn test-compile
+ * java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes othello.MoveGenBenchmark [games]
+ * </pre>
+ * Without --add-modules the batch path falls back to the scalar code.
+ */
+public class MoveGenBenchmark {
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        RandomGames corpus = new RandomGames(games);
+        List<int[][]> boards = corpus.positions;
+        int n = boards.size();
+        long[] own = new long[n];
+        long[] opp = new long[n];
+        long[] moves = new long[n];
+        for (int p = 0; p < n; p++) {
+            int turn = corpus.turn(p);
+            own[p] = Bitboard.pack(boards.get(p), turn);
+            opp[p] = Bitboard.pack(boards.get(p), turn == Othello.BLACK ? Othello.WHITE : Othello.BLACK);
+        }
+        Bitboard.BatchMoveGenerator batch = Bitboard.batch();
+        System.out.printf("%d boards, batch generator: %s%n", n, batch == Bitboard.SCALAR ? "scalar" : batch.getClass().getSimpleName());
+
+        Othello othello = new Othello(8);
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int valid = 0;
+            for (int p = 0; p < n; p++) {
+                if (othello.hasValidMoves(corpus.turn(p), boards.get(p))) {
+                    valid++;
+                }
+            }
+            report("Othello.hasValidMoves", n, start, valid);
+
+            int repeat = 20;
+            start = System.nanoTime();
+            for (int r = 0; r < repeat; r++) {
+                Bitboard.SCALAR.moves(own, opp, moves, n);
+            }
+            report("Bitboard scalar", n * repeat, start, moves[n - 1]);
+
+            start = System.nanoTime();
+            for (int r = 0; r < repeat; r++) {
+                batch.moves(own, opp, moves, n);
+            }
+            report("Bitboard batch", n * repeat, start, moves[n - 1]);
+        }
+    }
+
+    private static void report(String name, int boards, long start, long check) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-22s %,14.0f boards/sec (%d)%n", name, boards / seconds, check);
+    }
+}
@@ -86,7 +86,7 @@ public class OthelloTest {
 
     @Test
     public void testPlayGame() {
-        othello.playGame(((b, board) -> RandomAI.getRandomMove(othello, b, board)), ((w, board) -> RandomAI.getRandomMove(othello, w, board)));
+        RandomGames.play(othello);
         assertFalse(othello.hasValidMoves(Othello.BLACK, othello.board));
         assertFalse(othello.hasValidMoves(Othello.WHITE, othello.board));
     }
@@ -227,4 +227,86 @@ public class OthelloTest {
         assertNull("latest history record should be set to null", this.othello.history[0]);
         // TODO test undo history with 64 non-null records
     }
+
+    @Test
+    public void testJumpTo() {
+        Othello othello = new Othello(8, 4);
+        RandomGames.play(othello);
+        int moves = othello.countMoves(othello.history);
+        assertNotNull("checkpoint should be taken after the 4th move", othello.checkpoints[0]);
+        // jump to every move and compare with a full replay from the initial board
+        for (int i = -1; i < moves; i++) {
+            int[][] expected = othello.createBoard(othello.board.length);
+            othello.replay(othello.history, i, expected);
+            assertTrue("board differs at move " + i, Arrays.deepEquals(expected, othello.jumpTo(i)));
+        }
+        assertTrue(Arrays.deepEquals(othello.board, othello.jumpTo(moves - 1)));
+        assertTrue(othello.checkpointMemory() > 0);
+
+        // undo drops the checkpoints that include the undone move
+        int[][] previous = othello.jumpTo(moves - 2);
+        othello.undo();
+        assertTrue(Arrays.deepEquals(previous, othello.board));
+        for (int k = (moves - 1) / 4; k < othello.checkpoints.length; k++) {
+            assertNull(othello.checkpoints[k]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckpointInterval() {
+        new Othello(8, 0);
+    }
+
+    @Test
+    public void testValidMoves() {
+        Othello.Moves moves = this.othello.validMoves(Othello.BLACK, this.othello.board);
+        assertEquals(Othello.BLACK, moves.player);
+        assertEquals(4, moves.count);
+        assertTrue(moves.isValid(3, 2));
+        assertFalse(moves.isValid(3, 3));
+        assertFalse(moves.isValid(8, 0));
+        // boards of other sizes scan the lines instead of using Bitboard
+        Othello large = new Othello(10);
+        moves = large.validMoves(Othello.WHITE, large.board);
+        assertEquals(4, moves.count);
+        assertTrue(moves.isValid(3, 5));
+        assertEquals(1 << Othello.Direction.Down.ordinal(), moves.directions[3][5]);
+        // same moves and flips as isValid and makeMove over a whole game
+        RandomGames.play(othello);
+        for (int i = 0; i < othello.countMoves(othello.history); i++) {
+            int[][] board = othello.jumpTo(i - 1);
+            for (int player = Othello.BLACK; player <= Othello.WHITE; player++) {
+                moves = othello.validMoves(player, board);
+                int count = 0;
+                for (int row = 0; row < board.length; row++) {
+                    for (int col = 0; col < board.length; col++) {
+                        assertEquals(othello.isValid(row, col, player, board), moves.isValid(row, col));
+                        if (moves.isValid(row, col)) {
+                            count++;
+                            int[][] expected = othello.jumpTo(i - 1);
+                            othello.makeMove(row, col, player, expected);
+                            int[][] actual = othello.jumpTo(i - 1);
+                            othello.makeMove(row, col, player, actual, moves.directions[row][col]);
+                            assertTrue(Arrays.deepEquals(expected, actual));
+                        }
+                    }
+                }
+                assertEquals(count, moves.count);
+            }
+        }
+    }
+
+    @Test
+    public void testTurnMoves() {
+        assertEquals(Othello.BLACK, this.othello.turnMoves().player);
+        // black has no valid move, the turn passes to white
+        deepFill(this.othello.board, Othello.WHITE);
+        this.othello.board[0][0] = Othello.NONE;
+        this.othello.board[0][1] = Othello.BLACK;
+        assertEquals(Othello.WHITE, this.othello.turnMoves().player);
+        // end of game
+        this.othello.board[0][1] = Othello.WHITE;
+        assertNull(this.othello.turnMoves());
+        assertTrue(this.othello.endOfGame(this.othello.board));
+    }
 }
@@ -0,0 +1,66 @@
+package othello;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Positions from games played to the end by two #RandomAI players, for the tests and benchmarks.
+ */
+class RandomGames {
+
+    // discards what the games print
+    private static final PrintStream QUIET = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+    });
+
+    /**
+     * The position before each move of the games, in the order they were played.
+     */
+    final List<int[][]> positions = new ArrayList<>();
+    /**
+     * The move played from each of #positions, as recorded in #Othello.history: {row, col, player}.
+     */
+    final List<int[]> moves = new ArrayList<>();
+
+    /**
+     * Play #games games on the 8x8 board and collect their positions.
+     */
+    RandomGames(int games) {
+        for (int g = 0; g < games; g++) {
+            Othello othello = new Othello(8);
+            othello.out = QUIET;
+            play(othello);
+            for (int i = 0; i < othello.countMoves(othello.history); i++) {
+                positions.add(othello.jumpTo(i - 1));
+                moves.add(othello.history[i]);
+            }
+        }
+    }
+
+    /**
+     * @return The player in turn at the #i-th position.
+     */
+    int turn(int i) {
+        return moves.get(i)[2];
+    }
+
+    /**
+     * @return The positions of #games random games.
+     */
+    static List<int[][]> positions(int games) {
+        return new RandomGames(games).positions;
+    }
+
+    /**
+     * Play the game of #othello to the end with a #RandomAI on each side.
+     * @return #othello
+     */
+    static Othello play(Othello othello) {
+        othello.playGame(new RandomAI(othello), new RandomAI(othello));
+        return othello;
+    }
+}
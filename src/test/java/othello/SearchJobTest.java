@@ -0,0 +1,119 @@
+package othello;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchJobTest {
+
+    private File checkpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        checkpoint = File.createTempFile("othello-search", ".txt");
+        checkpoint.delete();
+    }
+
+    @After
+    public void tearDown() {
+        checkpoint.delete();
+    }
+
+    @Test
+    public void testWorkUnit() {
+        Othello othello = new Othello(6);
+        SearchJob.WorkUnit unit = new SearchJob.WorkUnit(7, Othello.WHITE, 5, othello.board);
+        SearchJob.WorkUnit parsed = SearchJob.WorkUnit.parse(unit.toLine());
+        assertEquals(7, parsed.id);
+        assertEquals(Othello.WHITE, parsed.player);
+        assertEquals(5, parsed.depth);
+        assertTrue(Arrays.deepEquals(othello.board, parsed.board));
+    }
+
+    @Test
+    public void testPerft() {
+        Othello othello = new Othello(8);
+        long[] expected = {1, 4, 12, 56, 244, 1396, 8200};
+        for (int depth = 0; depth < expected.length; depth++) {
+            assertEquals(expected[depth], SearchJob.perft(othello, othello.board, Othello.BLACK, depth));
+        }
+    }
+
+    @Test
+    public void testRunAndResume() throws Exception {
+        Othello othello = new Othello(8);
+        SearchJob job = new SearchJob(SearchJob.Mode.PERFT, othello.board, Othello.BLACK, 6, 2);
+        List<SearchJob.WorkUnit> units = job.split();
+        assertEquals(12, units.size());
+        assertEquals(8200, job.run(2, checkpoint));
+        assertEquals(units.size(), job.dispatched.get());
+
+        // keep the header and 5 results, plus a line cut short by a crash
+        List<String> lines = Files.readAllLines(checkpoint.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(units.size() + 1, lines.size());
+        Files.write(checkpoint.toPath(), (String.join("\n", lines.subList(0, 6)) + "\n11").getBytes(StandardCharsets.US_ASCII));
+        SearchJob resumed = new SearchJob(SearchJob.Mode.PERFT, othello.board, Othello.BLACK, 6, 2);
+        assertEquals(8200, resumed.run(3, checkpoint));
+        assertEquals(units.size() - 5, resumed.dispatched.get());
+
+        // a result whose value is cut short is run again, and the next result does not merge with it
+        lines = Files.readAllLines(checkpoint.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(units.size() + 1, lines.size());
+        String last = lines.get(lines.size() - 1);
+        Files.write(checkpoint.toPath(), (String.join("\n", lines.subList(0, lines.size() - 1)) + "\n"
+                + last.substring(0, last.length() - 1)).getBytes(StandardCharsets.US_ASCII));
+        resumed = new SearchJob(SearchJob.Mode.PERFT, othello.board, Othello.BLACK, 6, 2);
+        assertEquals(8200, resumed.run(2, checkpoint));
+        assertEquals(1, resumed.dispatched.get());
+        lines = Files.readAllLines(checkpoint.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(units.size() + 1, lines.size());
+        assertEquals(last.split(" ")[0], lines.get(lines.size() - 1).split(" ")[0]);
+        resumed = new SearchJob(SearchJob.Mode.PERFT, othello.board, Othello.BLACK, 6, 2);
+        assertEquals(8200, resumed.run(2, checkpoint));
+        assertEquals(0, resumed.dispatched.get());
+
+        // a checkpoint of another job is refused
+        try {
+            new SearchJob(SearchJob.Mode.PERFT, othello.board, Othello.BLACK, 7, 2).run(1, checkpoint);
+            fail("checkpoint of another job should be refused");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSolve() throws Exception {
+        // a late position of a random game
+        Othello othello = new Othello(8);
+        othello.out = new PrintStream(new ByteArrayOutputStream());
+        RandomGames.play(othello);
+        int moves = othello.countMoves(othello.history);
+        int index = Math.max(0, moves - 11);
+        int[][] board = othello.jumpTo(index - 1);
+        int player = othello.history[index][2];
+        long expected = SearchJob.search(othello, SearchJob.Mode.SOLVE, board, player, 64);
+        SearchJob job = new SearchJob(SearchJob.Mode.SOLVE, board, player, 64, 2);
+        assertEquals(expected, job.run(2, checkpoint));
+    }
+
+    @Test
+    public void testSmallBoard() throws Exception {
+        Othello othello = new Othello(6);
+        assertEquals(Othello.BLACK, othello.board[2][3]);
+        assertEquals(Othello.WHITE, othello.board[2][2]);
+        long expected = SearchJob.perft(othello, othello.board, Othello.BLACK, 6);
+        SearchJob job = new SearchJob(SearchJob.Mode.PERFT, othello.board, Othello.BLACK, 6, 3);
+        assertEquals(expected, job.run(2, checkpoint));
+    }
+}
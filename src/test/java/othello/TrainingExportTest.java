@@ -0,0 +1,210 @@
+package othello;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TrainingExportTest {
+
+    private List<SampleFile.Block> read(byte[] file) throws IOException {
+        List<SampleFile.Block> blocks = new ArrayList<>();
+        try (SampleFile.Reader in = new SampleFile.Reader(new ByteArrayInputStream(file))) {
+            SampleFile.Block block;
+            while ((block = in.next()) != null) {
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    @Test
+    public void testSampleFile() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SampleFile.Block block = new SampleFile.Block(3);
+        block.add(1L, 2L, 0, -64);
+        block.add(Long.MIN_VALUE, -1L, 59, 64);
+        try (SampleFile.Writer out = new SampleFile.Writer(bytes)) {
+            out.write(block);
+            assertEquals(2, out.samples());
+        }
+        List<SampleFile.Block> blocks = read(bytes.toByteArray());
+        assertEquals(1, blocks.size());
+        SampleFile.Block read = blocks.get(0);
+        assertEquals(2, read.size);
+        assertEquals(Long.MIN_VALUE, read.own[1]);
+        assertEquals(-1L, read.opp[1]);
+        assertEquals(59, read.moveNumber[1]);
+        assertEquals(-64, read.score[0]);
+        assertEquals(64, read.score[1]);
+    }
+
+    @Test
+    public void testSelfPlay() throws Exception {
+        TrainingExport export = new TrainingExport(3);
+        StringWriter archive = new StringWriter();
+        export.gameArchive = archive;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long written;
+        try (SampleFile.Writer out = new SampleFile.Writer(bytes)) {
+            export.selfPlay(30, out);
+            written = out.samples();
+        }
+        assertEquals(30, export.games.get());
+        assertEquals(0, export.rejected.get());
+        Set<String> seen = new HashSet<>();
+        long count = 0;
+        for (SampleFile.Block block : read(bytes.toByteArray())) {
+            for (int i = 0; i < block.size; i++) {
+                long own = block.own[i];
+                long opp = block.opp[i];
+                // canonical, unique and legal positions
+                assertEquals(0, Bitboard.canonicalSymmetry(own, opp));
+                assertTrue(seen.add(own + "/" + opp));
+                assertEquals(0, own & opp);
+                assertNotEquals(0, Bitboard.moves(own, opp));
+                assertEquals(Long.bitCount(own | opp), block.moveNumber[i] + 4);
+                count++;
+            }
+        }
+        assertEquals(written, count);
+        assertEquals(30, archive.toString().split(System.lineSeparator()).length);
+
+        // the archived games replay to the same samples, all of them are duplicates the second time
+        String games = archive.toString();
+        TrainingExport again = new TrainingExport(2);
+        bytes = new ByteArrayOutputStream();
+        try (SampleFile.Writer out = new SampleFile.Writer(bytes)) {
+            again.archive(new BufferedReader(new StringReader(games + games + "3d 3d" + System.lineSeparator())), out);
+            assertEquals(written, out.samples());
+        }
+        assertEquals(60, again.games.get());
+        assertEquals(1, again.rejected.get());
+    }
+
+    @Test
+    public void testUnfinishedGames() throws Exception {
+        TrainingExport export = new TrainingExport(2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SampleFile.Writer out = new SampleFile.Writer(bytes)) {
+            export.archive(new BufferedReader(new StringReader("3d\n3d 3c\n")), out);
+            assertEquals(0, out.samples());
+        }
+        assertEquals(0, export.games.get());
+        assertEquals(2, export.rejected.get());
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        // a worker failure fails the export
+        TrainingExport export = new TrainingExport(2);
+        try (SampleFile.Writer out = new SampleFile.Writer(new ByteArrayOutputStream())) {
+            export.run(() -> {
+                throw new IllegalStateException("broken source");
+            }, out);
+            fail("the worker failure should fail the export");
+        } catch (IllegalStateException e) {
+            assertEquals("broken source", e.getMessage());
+        }
+
+        // a writer failure stops the workers
+        export = new TrainingExport(2);
+        SampleFile.Writer out = new SampleFile.Writer(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        });
+        try {
+            export.selfPlay(2000, out);
+            fail("the writer failure should fail the export");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("othello-export-")) {
+                thread.join(10000);
+                assertFalse(thread.getName(), thread.isAlive());
+            }
+        }
+    }
+
+    @Test
+    public void testPerMoveLimit() throws Exception {
+        TrainingExport export = new TrainingExport(2);
+        export.perMoveLimit = 3;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SampleFile.Writer out = new SampleFile.Writer(bytes)) {
+            export.selfPlay(20, out);
+        }
+        int[] perMove = new int[64];
+        for (SampleFile.Block block : read(bytes.toByteArray())) {
+            for (int i = 0; i < block.size; i++) {
+                perMove[block.moveNumber[i]]++;
+            }
+        }
+        for (int n : perMove) {
+            assertTrue(n <= 3);
+        }
+        // only one canonical position at move 0
+        assertEquals(1, perMove[0]);
+    }
+
+    @Test
+    public void testWeightFitter() throws IOException {
+        // scores generated by known weights are recovered
+        double[] weights = {10, -3, 1, -2, 0.5, 1, 4, 0, 2, -1};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Random random = new java.util.Random(42);
+        SampleFile.Block block = new SampleFile.Block(SampleFile.BLOCK_SIZE);
+        try (SampleFile.Writer out = new SampleFile.Writer(bytes)) {
+            for (int i = 0; i < SampleFile.BLOCK_SIZE; i++) {
+                long own = random.nextLong() & random.nextLong();
+                long opp = random.nextLong() & ~own;
+                double[] x = WeightFitter.features(own, opp);
+                double score = 0;
+                for (int c = 0; c < WeightFitter.CLASSES; c++) {
+                    score += weights[c] * x[c];
+                }
+                // keep the generated scores within a byte
+                block.add(own, opp, 0, (int) Math.max(-128, Math.min(127, score)));
+            }
+            out.write(block);
+        }
+        WeightFitter fitter = new WeightFitter();
+        try (SampleFile.Reader in = new SampleFile.Reader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            fitter.addAll(in);
+        }
+        assertEquals(SampleFile.BLOCK_SIZE, fitter.samples());
+        double[] w = fitter.solve(1e-9);
+        for (int c = 0; c < WeightFitter.CLASSES; c++) {
+            assertEquals("class " + c, weights[c], w[c], 0.5);
+        }
+    }
+
+    @Test
+    public void testSquareClass() {
+        assertEquals(0, WeightFitter.squareClass(0, 0));
+        assertEquals(0, WeightFitter.squareClass(7, 7));
+        assertEquals(WeightFitter.squareClass(0, 1), WeightFitter.squareClass(6, 7));
+        assertEquals(9, WeightFitter.squareClass(3, 4));
+        long all = 0;
+        for (long mask : WeightFitter.CLASS_MASKS) {
+            assertEquals(0, all & mask);
+            all |= mask;
+        }
+        assertEquals(-1L, all);
+    }
+}
@@ -0,0 +1,74 @@
+package othello;
+
+import java.util.List;
+
+/**
+ * Compares the per-turn cost of the former #Othello.playGame loop (endOfGame, hasValidMoves, isValid and
+ * makeMove, each scanning the board again) with the single #Othello.validMoves computation shared by
+ * the whole turn. Both replay the turns of the same random games. Run with:
+ * <pre>
+ * mvn test-compile
+ * java -cp target/classes:target/test-classes othello.TurnBenchmark [games]
+ * </pre>
+ */
+public class TurnBenchmark {
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        RandomGames corpus = new RandomGames(games);
+        List<int[][]> boards = corpus.positions;
+        List<int[]> records = corpus.moves;
+        int n = boards.size();
+        System.out.printf("%d turns%n", n);
+        Othello othello = new Othello(8);
+        int[][] board = new int[8][8];
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int check = 0;
+            for (int t = 0; t < n; t++) {
+                copy(boards.get(t), board);
+                int[] record = records.get(t);
+                int turn = record[2];
+                if (othello.endOfGame(board)) {
+                    continue;
+                }
+                if (!othello.hasValidMoves(turn, board)) {
+                    check++;
+                }
+                if (othello.isValid(record[0], record[1], turn, board)) {
+                    othello.makeMove(record[0], record[1], turn, board);
+                    check += board[record[0]][record[1]];
+                }
+            }
+            report("scan per step", n, start, check);
+
+            start = System.nanoTime();
+            check = 0;
+            for (int t = 0; t < n; t++) {
+                copy(boards.get(t), board);
+                int[] record = records.get(t);
+                int turn = record[2];
+                Othello.Moves moves = othello.validMoves(turn, board);
+                if (moves.count == 0) {
+                    check++;
+                }
+                if (moves.isValid(record[0], record[1])) {
+                    othello.makeMove(record[0], record[1], turn, board, moves.directions[record[0]][record[1]]);
+                    check += board[record[0]][record[1]];
+                }
+            }
+            report("one scan per turn", n, start, check);
+        }
+    }
+
+    private static void copy(int[][] from, int[][] to) {
+        for (int i = 0; i < from.length; i++) {
+            System.arraycopy(from[i], 0, to[i], 0, from[i].length);
+        }
+    }
+
+    private static void report(String name, int turns, long start, int check) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-18s %,12.0f turns/sec %8.2f us/turn (%d)%n", name, turns / seconds, seconds * 1e6 / turns, check);
+    }
+}